@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+/**
+ * Measures the throughput and latency of {@link TopicProcessor} and
+ * {@link WorkQueueProcessor} for 1P1C, 1PnC, nP1C and nPnC topologies, across the
+ * {@link WaitStrategy} factories, buffer sizes and bounded or unbounded demand.
+ * <p>
+ * Each {@link #publish()} invocation publishes {@link #SIGNALS} signals, split among the
+ * producers, and returns once the subscribers received them all: every signal for each
+ * subscriber of a {@link TopicProcessor}, and each signal once for a
+ * {@link WorkQueueProcessor}. Throughput is reported per signal. Each
+ * {@link #publishOne()} invocation publishes a single signal and returns once it was
+ * received, so that its samples are the distribution of the publish to consume latency.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ProcessorBenchmark {
+
+	static final int SIGNALS = 1 << 16;
+
+	@Param({"topic", "workQueue"})
+	String processor;
+
+	@Param({"1", "4"})
+	int producers;
+
+	@Param({"1", "4"})
+	int consumers;
+
+	@Param({"blocking", "liteBlocking", "busySpin", "yielding", "sleeping", "parking",
+			"parkingBackoff", "phasedOffLiteLock", "phasedOffLock", "phasedOffSleep", "adaptive", "targeted"})
+	String waitStrategy;
+
+	@Param({"256", "8192"})
+	int bufferSize;
+
+	@Param({"true", "false"})
+	boolean bounded;
+
+	EventLoopProcessor<Integer> eventLoopProcessor;
+	ExecutorService             producerExecutor;
+	CountingSubscriber[]        subscribers;
+	//the number of times each signal is received
+	long                        deliveries;
+
+	static WaitStrategy waitStrategy(String name) {
+		switch (name) {
+			case "blocking":
+				return WaitStrategy.blocking();
+			case "liteBlocking":
+				return WaitStrategy.liteBlocking();
+			case "busySpin":
+				return WaitStrategy.busySpin();
+			case "yielding":
+				return WaitStrategy.yielding();
+			case "sleeping":
+				return WaitStrategy.sleeping();
+			case "parking":
+				return WaitStrategy.parking();
+			case "parkingBackoff":
+				return WaitStrategy.parkingBackoff(1, TimeUnit.MILLISECONDS);
+			case "phasedOffLiteLock":
+				return WaitStrategy.phasedOffLiteLock(200, 100, TimeUnit.MICROSECONDS);
+			case "phasedOffLock":
+				return WaitStrategy.phasedOffLock(200, 100, TimeUnit.MICROSECONDS);
+			case "phasedOffSleep":
+				return WaitStrategy.phasedOffSleep(200, 100, TimeUnit.MICROSECONDS);
+			case "adaptive":
+				return WaitStrategy.adaptive();
+			case "targeted":
+				return WaitStrategy.targeted();
+			default:
+				throw new IllegalArgumentException("Unknown wait strategy: " + name);
+		}
+	}
+
+	@Setup
+	public void setup() {
+		boolean share = producers > 1;
+		if ("topic".equals(processor)) {
+			eventLoopProcessor = TopicProcessor.<Integer>builder().bufferSize(bufferSize)
+			                                                      .waitStrategy(waitStrategy(waitStrategy))
+			                                                      .share(share)
+			                                                      .build();
+			deliveries = consumers;
+		}
+		else {
+			eventLoopProcessor = WorkQueueProcessor.<Integer>builder().bufferSize(bufferSize)
+			                                                          .waitStrategy(waitStrategy(waitStrategy))
+			                                                          .share(share)
+			                                                          .build();
+			deliveries = 1L;
+		}
+
+		long batch = bounded ? Math.max(bufferSize >> 2, 1) : Long.MAX_VALUE;
+		subscribers = new CountingSubscriber[consumers];
+		for (int i = 0; i < consumers; i++) {
+			subscribers[i] = new CountingSubscriber(batch);
+			eventLoopProcessor.subscribe(subscribers[i]);
+		}
+		producerExecutor = share ? Executors.newFixedThreadPool(producers) : null;
+	}
+
+	@TearDown
+	public void tearDown() {
+		eventLoopProcessor.forceShutdown();
+		if (producerExecutor != null) {
+			producerExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the number of signals received so far, summed over the subscribers
+	 */
+	long received() {
+		long received = 0L;
+		for (CountingSubscriber subscriber : subscribers) {
+			received += subscriber.received;
+		}
+		return received;
+	}
+
+	void awaitReceived(long target) {
+		while (received() < target) {
+			Thread.yield();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIGNALS)
+	public void publish() throws InterruptedException {
+		long target = received() + deliveries * SIGNALS;
+		if (producerExecutor == null) {
+			for (int i = 0; i < SIGNALS; i++) {
+				eventLoopProcessor.onNext(i);
+			}
+		}
+		else {
+			int perProducer = SIGNALS / producers;
+			CountDownLatch published = new CountDownLatch(producers);
+			for (int p = 0; p < producers; p++) {
+				producerExecutor.execute(() -> {
+					for (int i = 0; i < perProducer; i++) {
+						eventLoopProcessor.onNext(i);
+					}
+					published.countDown();
+				});
+			}
+			published.await();
+		}
+
+		awaitReceived(target);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	public void publishOne() {
+		long target = received() + deliveries;
+		eventLoopProcessor.onNext(0);
+		awaitReceived(target);
+	}
+
+	static final class CountingSubscriber extends BaseSubscriber<Integer> {
+
+		final long batch;
+
+		long remaining;
+
+		/**
+		 * Only written by the subscriber thread, so that subscribers do not contend on
+		 * a shared counter.
+		 */
+		volatile long received;
+		static final AtomicLongFieldUpdater<CountingSubscriber> RECEIVED =
+				AtomicLongFieldUpdater.newUpdater(CountingSubscriber.class, "received");
+
+		CountingSubscriber(long batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			remaining = batch;
+			subscription.request(batch);
+		}
+
+		@Override
+		protected void hookOnNext(Integer value) {
+			RECEIVED.lazySet(this, received + 1L);
+			if (batch != Long.MAX_VALUE && --remaining == 0) {
+				remaining = batch;
+				request(batch);
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.extra.processor.EventLoopProcessor.Slot;
+
+/**
+ * Measures the cost of claiming and publishing ring buffer slots with each sequencer,
+ * without subscribers so that producers never wait for free slots. The multi producer
+ * sequencers can be measured under contention by running with several threads, for
+ * instance with {@code -t 4}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RingBufferBenchmark {
+
+	static final int BATCH = 16;
+
+	@Param({"single", "multi", "striped"})
+	String sequencer;
+
+	@Param({"256", "8192"})
+	int bufferSize;
+
+	RingBuffer<Slot<Integer>> ringBuffer;
+
+	@Setup
+	public void setup() {
+		WaitStrategy waitStrategy = WaitStrategy.liteBlocking();
+		WaitStrategy producerWaitStrategy = WaitStrategy.parking(0);
+		switch (sequencer) {
+			case "single":
+				ringBuffer = RingBuffer.createSingleProducer(Slot::new, bufferSize,
+						waitStrategy, producerWaitStrategy, null);
+				break;
+			case "multi":
+				ringBuffer = RingBuffer.createMultiProducer(Slot::new, bufferSize,
+						waitStrategy, producerWaitStrategy, null);
+				break;
+			case "striped":
+				ringBuffer = RingBuffer.createStripedMultiProducer(Slot::new, bufferSize,
+						waitStrategy, producerWaitStrategy, null);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown sequencer: " + sequencer);
+		}
+	}
+
+	@Benchmark
+	public long claimAndPublish() {
+		long seqId = ringBuffer.next();
+		ringBuffer.get(seqId).value = 1;
+		ringBuffer.publish(seqId);
+		return seqId;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long claimAndPublishBatch() {
+		long hi = ringBuffer.next(BATCH);
+		long lo = hi - (BATCH - 1);
+		for (long seqId = lo; seqId <= hi; seqId++) {
+			ringBuffer.get(seqId).value = 1;
+		}
+		ringBuffer.publish(lo, hi);
+		return hi;
+	}
+}
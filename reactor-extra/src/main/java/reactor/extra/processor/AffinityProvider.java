@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.BitSet;
+
+import reactor.util.annotation.Nullable;
+
+/**
+ * Pins threads to a set of CPUs, configured with the {@code affinity} option of the
+ * {@link TopicProcessor} and {@link WorkQueueProcessor} builders so that the threads
+ * running their subscribers do not migrate across cores, which mostly matters with
+ * spinning wait strategies such as {@link WaitStrategy#busySpin()}.
+ */
+public interface AffinityProvider {
+
+	/**
+	 * Return a provider backed by the Linux {@code taskset} utility if it is available,
+	 * or a {@link #noop()} provider otherwise.
+	 *
+	 * @return the Linux provider, or a no-op provider on other platforms
+	 */
+	static AffinityProvider linux() {
+		return ThreadAffinity.Linux.isSupported() ? ThreadAffinity.Linux.INSTANCE : noop();
+	}
+
+	/**
+	 * Return a provider that never pins threads.
+	 *
+	 * @return the no-op provider
+	 */
+	static AffinityProvider noop() {
+		return ThreadAffinity.Noop.INSTANCE;
+	}
+
+	/**
+	 * Return the CPUs the current thread is allowed to run on.
+	 *
+	 * @return the CPUs of the current thread, or null if unknown
+	 */
+	@Nullable
+	BitSet currentAffinity();
+
+	/**
+	 * Restrict the current thread to the given CPUs.
+	 *
+	 * @param cpus the CPUs to run on
+	 * @return true if the thread was pinned, false if pinning is not supported or failed
+	 */
+	boolean pin(BitSet cpus);
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the signals of a processor backlog to and from the bytes stored in a
+ * memory-mapped file, as configured with {@code mappedBacklog} on the
+ * {@link TopicProcessor.Builder} and {@link WorkQueueProcessor.Builder}.
+ * <p>
+ * Implementations must be thread-safe: several publishers and subscribers use the same
+ * serializer concurrently, each with its own {@link ByteBuffer}.
+ *
+ * @param <T> the type of the serialized signals
+ */
+public interface BacklogSerializer<T> {
+
+	/**
+	 * Write the given signal into the target buffer, starting at its current position.
+	 * A signal that does not fit in the buffer remaining bytes triggers a
+	 * {@link java.nio.BufferOverflowException}, in which case it is kept on heap and
+	 * is not durable.
+	 *
+	 * @param value the signal to write
+	 * @param target the buffer to write to, limited to the maximum serialized size
+	 */
+	void write(T value, ByteBuffer target);
+
+	/**
+	 * Read a signal from the source buffer, whose remaining bytes are the ones written
+	 * by {@link #write(Object, ByteBuffer)}.
+	 *
+	 * @param source the buffer to read from
+	 * @return the signal
+	 */
+	T read(ByteBuffer source);
+}
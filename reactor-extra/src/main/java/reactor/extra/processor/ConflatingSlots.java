@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import reactor.extra.processor.EventLoopProcessor.Slot;
+
+/**
+ * The conflation state of a {@link TopicProcessor}: the slot holding the latest signal
+ * of each key, and the latest sequence read from each slot. A signal replaces in place
+ * the latest signal of the same key as long as no subscriber read it, so that
+ * subscribers only receive the latest signal of each key published while they were
+ * busy.
+ * <p>
+ * Publications are serialized, and only ever race with subscriber reads: a subscriber
+ * marks the slot as read before reading it, while a publisher replaces the signal in
+ * place before checking the mark. Either the subscriber reads the replacement, or the
+ * publisher sees the mark and publishes the signal in a new slot, in which case a
+ * subscriber may receive the same signal twice but never misses the latest one.
+ *
+ * @param <T> the signal type
+ */
+final class ConflatingSlots<T> {
+
+	final Function<? super T, ?> keyMapper;
+	final int                    mask;
+	final AtomicLongArray        reads;
+	final Object[]               keys;
+	final Map<Object, Long>      latest;
+
+	ConflatingSlots(Function<? super T, ?> keyMapper, int bufferSize) {
+		this.keyMapper = Objects.requireNonNull(keyMapper, "keyMapper");
+		this.mask = bufferSize - 1;
+		long[] unread = new long[bufferSize];
+		Arrays.fill(unread, RingBuffer.INITIAL_CURSOR_VALUE);
+		this.reads = new AtomicLongArray(unread);
+		this.keys = new Object[bufferSize];
+		this.latest = new HashMap<>();
+	}
+
+	/**
+	 * Publish a signal, replacing in place the latest signal of the same key if no
+	 * subscriber read it yet, or claiming a new slot otherwise.
+	 *
+	 * @param processor the processor owning the ring buffer
+	 * @param value the signal to publish
+	 */
+	synchronized void publish(EventLoopProcessor<T> processor, T value) {
+		final Object key = Objects.requireNonNull(keyMapper.apply(value), "The keyMapper returned a null key");
+		final RingBuffer<Slot<T>> ringBuffer = processor.ringBuffer;
+
+		final Long previous = latest.get(key);
+		if (previous != null) {
+			final long seqId = previous;
+			final int index = (int) seqId & mask;
+			final long read = reads.get(index);
+			//the slot may have been reused since by a signal that was not conflated
+			if (ringBuffer.getCursor() - seqId <= mask && read < seqId) {
+				ringBuffer.get(seqId).value = value;
+				//a subscriber marking the slot afterwards reads the replacement, unless
+				//it marked the slot first and the signal is published again
+				if (reads.compareAndSet(index, read, read)) {
+					return;
+				}
+			}
+		}
+
+		final long seqId = processor.claimNext();
+		final int index = (int) seqId & mask;
+		final Object evicted = keys[index];
+		if (evicted != null) {
+			final Long evictedSeqId = latest.get(evicted);
+			if (evictedSeqId != null && ((int) (long) evictedSeqId & mask) == index) {
+				latest.remove(evicted);
+			}
+		}
+		keys[index] = key;
+		latest.put(key, seqId);
+		ringBuffer.get(seqId).value = value;
+		processor.publishSlot(seqId);
+	}
+
+	/**
+	 * Read the signal of a published slot on behalf of a subscriber, marking the slot as
+	 * read first so that it is no longer replaced in place.
+	 *
+	 * @param slot the published slot
+	 * @param seqId the sequence of the slot
+	 * @return the latest signal of the slot
+	 */
+	T read(Slot<T> slot, long seqId) {
+		reads.getAndSet((int) seqId & mask, seqId);
+		return slot.value;
+	}
+}
@@ -16,8 +16,13 @@
 package reactor.extra.processor;
 
 import java.io.Serializable;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -25,10 +30,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.reactivestreams.Subscription;
@@ -95,16 +100,18 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 	}
 
 	/**
-	 * Spin CPU until the request {@link LongSupplier} is populated at least once by a
-	 * strict positive value. To relieve the spin loop, the read sequence itself will be
+	 * Wait until the request {@link LongSupplier} is populated at least once by a
+	 * strict positive value. To relieve the wait loop, the read sequence itself will be
 	 * used against so it will wake up only when a signal is emitted upstream or other
 	 * stopping condition including terminal signals thrown by the {@link
-	 * RingBuffer.Reader} waiting barrier.
+	 * RingBuffer.Reader} waiting barrier. Once a signal is available, the demand
+	 * {@link WaitStrategy} is used until a request is received.
 	 *
 	 * @param pendingRequest the {@link LongSupplier} request to observe
 	 * @param barrier {@link RingBuffer.Reader} to wait on
 	 * @param isRunning {@link AtomicBoolean} calling loop running state
 	 * @param nextSequence {@link LongSupplier} ring buffer read cursor
+	 * @param demandWait the {@link WaitStrategy} signalled when demand is received
 	 * @param waiter an optional extra spin observer for the wait strategy in {@link
 	 * RingBuffer.Reader}
 	 *
@@ -114,6 +121,7 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 			RingBuffer.Reader barrier,
 			AtomicBoolean isRunning,
 			LongSupplier nextSequence,
+			WaitStrategy demandWait,
 			Runnable waiter) {
 		try {
 			long waitedSequence;
@@ -126,7 +134,7 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 				if (!isRunning.get()) {
 					WaitStrategy.alert();
 				}
-				LockSupport.parkNanos(1L);
+				demandWait.waitFor(1L, pendingRequest, waiter);
 			}
 		}
 		catch (InterruptedException ie) {
@@ -195,6 +203,50 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 	final RingBuffer<Slot<IN>> ringBuffer;
 	final WaitStrategy readWait = WaitStrategy.liteBlocking();
 
+	/**
+	 * A {@link WaitStrategy} of the same kind as the one used by consumers, on which
+	 * bounded subscribers without pending demand wait. It is signalled on each request
+	 * and terminal event.
+	 */
+	final WaitStrategy demandWait;
+
+	/**
+	 * The {@link WaitStrategy} publishers use while the ring buffer is full. It is
+	 * signalled whenever a consumer or the request task moves a gating sequence.
+	 */
+	final WaitStrategy producerWait;
+
+	/**
+	 * The number of signals initially requested from upstream, never more than the
+	 * ring buffer size.
+	 */
+	final int requestHighTide;
+
+	/**
+	 * The number of signals consumed before the request task replenishes them upstream
+	 * with a single request.
+	 */
+	final int requestLowTide;
+
+	/**
+	 * The optional listener of the time spent by signals in this processor.
+	 */
+	@Nullable
+	final ProcessorMetrics metrics;
+
+	/**
+	 * The optional policy pinning the threads running the subscribers to CPUs.
+	 */
+	@Nullable
+	final ThreadAffinity affinity;
+
+	/**
+	 * The time each slot was published at, indexed like the ring buffer, if
+	 * {@link #metrics} are recorded or publications are otherwise timestamped.
+	 */
+	@Nullable
+	final long[] publishTimes;
+
 	Subscription upstreamSubscription;
 	volatile        boolean         cancelled;
 	volatile        int             terminated;
@@ -202,6 +254,11 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 
 	volatile       int                                                  subscriberCount;
 
+	/**
+	 * The running subscribers, as returned by {@link #inners()}.
+	 */
+	final Set<Scannable> subscribers = ConcurrentHashMap.newKeySet();
+
 	EventLoopProcessor(
 			int bufferSize,
 			@Nullable ThreadFactory threadFactory,
@@ -209,8 +266,16 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 			ExecutorService requestExecutor,
 			boolean autoCancel,
 			boolean multiproducers,
+			boolean stripedClaims,
 			Supplier<Slot<IN>> factory,
-			WaitStrategy strategy) {
+			WaitStrategy strategy,
+			WaitStrategy producerStrategy,
+			@Nullable MappedRingBuffer.Backlog<IN> backlog,
+			int requestHighTide,
+			int requestLowTide,
+			@Nullable ProcessorMetrics metrics,
+			@Nullable ThreadAffinity affinity,
+			boolean timestamped) {
 
 		if (!Queues.isPowerOfTwo(bufferSize)) {
 			throw new IllegalArgumentException("bufferSize must be a power of 2 : " + bufferSize);
@@ -221,7 +286,24 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 					"was: "+bufferSize);
 		}
 
+		if (requestHighTide > bufferSize) {
+			throw new IllegalArgumentException("requestHighTide must not exceed the bufferSize " +
+					bufferSize + ", was: " + requestHighTide);
+		}
+
+		this.requestHighTide = requestHighTide > 0 ? requestHighTide : bufferSize;
+		this.requestLowTide = requestLowTide > 0 ? requestLowTide : defaultLowTide(this.requestHighTide);
+		if (this.requestLowTide > this.requestHighTide) {
+			throw new IllegalArgumentException("requestLowTide must not exceed the requestHighTide " +
+					this.requestHighTide + ", was: " + this.requestLowTide);
+		}
+
+		this.metrics = metrics;
+		this.affinity = affinity;
+		this.publishTimes = metrics != null || timestamped ? new long[bufferSize] : null;
 		this.autoCancel = autoCancel;
+		this.demandWait = strategy.copy();
+		this.producerWait = Objects.requireNonNull(producerStrategy, "producerStrategy");
 
 		contextClassLoader = new EventLoopContext(multiproducers);
 
@@ -236,20 +318,72 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 			this.executor = executor;
 		}
 
-		if (multiproducers) {
+		if (backlog != null) {
+			this.ringBuffer = new MappedRingBuffer<>(factory,
+					RingBuffer.createSequencer(bufferSize,
+							strategy,
+							producerWait,
+							multiproducers,
+							stripedClaims,
+							this),
+					backlog);
+		}
+		else if (multiproducers && stripedClaims) {
+			this.ringBuffer = RingBuffer.createStripedMultiProducer(factory,
+					bufferSize,
+					strategy,
+					producerWait,
+					this);
+		}
+		else if (multiproducers) {
 			this.ringBuffer = RingBuffer.createMultiProducer(factory,
 					bufferSize,
 					strategy,
+					producerWait,
 					this);
 		}
 		else {
 			this.ringBuffer = RingBuffer.createSingleProducer(factory,
 					bufferSize,
 					strategy,
+					producerWait,
 					this);
 		}
 	}
 
+	/**
+	 * Compute the default number of consumed signals replenished upstream at once, three
+	 * quarters of the initial request.
+	 *
+	 * @param highTide the initial request
+	 * @return the default replenishment size
+	 */
+	static int defaultLowTide(int highTide) {
+		return highTide == 1 ? highTide : highTide - Math.max(highTide >> 2, 1);
+	}
+
+	/**
+	 * Read the signals retained in a backlog file written by a processor configured with
+	 * {@code mappedBacklog}, oldest first, for instance to recover them after a crash.
+	 * Every signal still held by the backlog when the file was last written is replayed,
+	 * unless every subscriber had consumed it: the slowest subscriber sequence is
+	 * recorded regularly as signals are published, when a subscriber leaves and once the
+	 * processor terminated and its subscribers stopped.
+	 * Signals consumed since the last record are replayed again. Signals too large for
+	 * the file slots are not durable and are skipped.
+	 * <p>
+	 * A processor configured with an existing backlog file resets it, so it must be
+	 * replayed before such a processor is built.
+	 *
+	 * @param file the backlog file
+	 * @param serializer the serializer the backlog was written with
+	 * @param <T> the type of the signals
+	 * @return a {@link Flux} of the retained signals
+	 */
+	public static <T> Flux<T> replayBacklog(Path file, BacklogSerializer<T> serializer) {
+		return MappedRingBuffer.replay(file, serializer);
+	}
+
 	/**
 	 * Return the number of parked elements in the emitter backlog.
 	 *
@@ -257,10 +391,27 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 	 */
 	public abstract long getPending();
 
+	/**
+	 * Take a snapshot of the times recorded by the {@link LatencyRecorder} configured as
+	 * the {@code metrics} of this processor, along with its current backlog depth.
+	 *
+	 * @return a snapshot of the recorded times, or null if this processor does not
+	 * record its metrics with a {@link LatencyRecorder}
+	 */
+	@Nullable
+	public final LatencyRecorder.Snapshot metricsSnapshot() {
+		ProcessorMetrics metrics = this.metrics;
+		if (metrics instanceof LatencyRecorder) {
+			return ((LatencyRecorder) metrics).snapshot(getPending());
+		}
+		return null;
+	}
+
 	@Override
 	@Nullable
 	public Object scanUnsafe(Attr key) {
 		if (key == Attr.PARENT) return upstreamSubscription;
+		if (key == LatencyRecorder.SNAPSHOT) return metricsSnapshot();
 
 		return super.scanUnsafe(key);
 	}
@@ -348,10 +499,33 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 		}
 	}
 
-	//FIXME store current subscribers
 	@Override
 	public Stream<? extends Scannable> inners() {
-		return Stream.empty();
+		return subscribers.stream();
+	}
+
+	/**
+	 * Take a snapshot of the progress of each subscriber, for instance to find the one
+	 * holding back the producers with the highest {@link SubscriberSnapshot#lag()}.
+	 *
+	 * @return a snapshot of each subscriber
+	 */
+	public final List<SubscriberSnapshot> subscriberSnapshots() {
+		return inners().map(SubscriberSnapshot::of)
+		               .collect(Collectors.toList());
+	}
+
+	/**
+	 * Periodically take a snapshot of the progress of each subscriber, see
+	 * {@link #subscriberSnapshots()}.
+	 *
+	 * @param period the period between two snapshots
+	 * @return a {@link Flux} of the subscriber snapshots, emitted on the parallel
+	 * {@link reactor.core.scheduler.Scheduler}
+	 */
+	public final Flux<List<SubscriberSnapshot>> subscriberMetrics(Duration period) {
+		return Flux.interval(period)
+		           .map(tick -> subscriberSnapshots());
 	}
 
 	/**
@@ -374,6 +548,7 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 		if (t != FORCED_SHUTDOWN && TERMINATED.compareAndSet(this, t, FORCED_SHUTDOWN)) {
 			executor.shutdownNow();
 			requestTaskExecutor.shutdownNow();
+			releaseIfIdle();
 		}
 		return drain();
 	}
@@ -417,7 +592,8 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 			upstreamSubscription = null;
 			doComplete();
 			executor.shutdown();
-			readWait.signalAllWhenBlocking();
+			wakeAllWaiters();
+			releaseIfIdle();
 		}
 	}
 
@@ -429,7 +605,8 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 			upstreamSubscription = null;
 			doError(t);
 			executor.shutdown();
-			readWait.signalAllWhenBlocking();
+			wakeAllWaiters();
+			releaseIfIdle();
 		}
 		else {
 			Operators.onErrorDropped(t, Context.empty());
@@ -437,14 +614,186 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 	}
 
 	@Override
-	final public void onNext(IN o) {
+	public void onNext(IN o) {
 		Objects.requireNonNull(o, "onNext");
-		final long seqId = ringBuffer.next();
+		final long seqId = claimNext();
 		final Slot<IN> signal = ringBuffer.get(seqId);
 		signal.value = o;
+		publishSlot(seqId);
+	}
+
+	/**
+	 * Claim the next slot of the ring buffer, waiting for it to be free, and record the
+	 * wait if {@link #metrics} are configured.
+	 *
+	 * @return the claimed sequence
+	 */
+	final long claimNext() {
+		final ProcessorMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return next();
+		}
+		long start = System.nanoTime();
+		long seqId = next();
+		metrics.recordPublishWait(System.nanoTime() - start);
+		return seqId;
+	}
+
+	/**
+	 * Pin the current thread, about to run a subscriber, as configured by the builder
+	 * {@code affinity} option.
+	 *
+	 * @return a task restoring the previous affinity of the thread once the subscriber
+	 * terminates
+	 */
+	final Runnable pinThread() {
+		final ThreadAffinity affinity = this.affinity;
+		return affinity != null ? affinity.pinCurrentThread() : ThreadAffinity.NO_RESTORE;
+	}
+
+	/**
+	 * Claim the next slot of the ring buffer, waiting for it to be free.
+	 *
+	 * @return the claimed sequence
+	 */
+	long next() {
+		return ringBuffer.next();
+	}
+
+	/**
+	 * Return the maximum number of slots a single claim can take, the whole ring buffer
+	 * unless some of it is reserved.
+	 *
+	 * @return the maximum number of slots of a claim
+	 */
+	int maxClaim() {
+		return ringBuffer.bufferSize();
+	}
+
+	/**
+	 * Publish a claimed slot, stamping its publication time if {@link #metrics} are
+	 * configured.
+	 *
+	 * @param seqId the claimed sequence
+	 */
+	final void publishSlot(long seqId) {
+		final long[] publishTimes = this.publishTimes;
+		if (publishTimes != null) {
+			publishTimes[(int) seqId & (publishTimes.length - 1)] = System.nanoTime();
+		}
 		ringBuffer.publish(seqId);
 	}
 
+	/**
+	 * Publish a range of claimed slots, stamping their publication time if
+	 * {@link #metrics} are configured.
+	 *
+	 * @param lo the first claimed sequence
+	 * @param hi the last claimed sequence
+	 */
+	final void publishSlots(long lo, long hi) {
+		final long[] publishTimes = this.publishTimes;
+		if (publishTimes != null) {
+			long now = System.nanoTime();
+			for (long seqId = lo; seqId <= hi; seqId++) {
+				publishTimes[(int) seqId & (publishTimes.length - 1)] = now;
+			}
+		}
+		ringBuffer.publish(lo, hi);
+	}
+
+	/**
+	 * Wait on the given reader for the given sequence to be published, and record the
+	 * wait if {@link #metrics} are configured.
+	 *
+	 * @param reader the reader of a subscriber
+	 * @param sequence the sequence to wait for
+	 * @param spinObserver the reader spin observer
+	 * @return the highest published sequence, which may be lower than the awaited one
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	final long waitForSlot(RingBuffer.Reader reader, long sequence, Runnable spinObserver)
+			throws InterruptedException {
+		final ProcessorMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return reader.waitFor(sequence, spinObserver);
+		}
+		long start = System.nanoTime();
+		long available = reader.waitFor(sequence, spinObserver);
+		metrics.recordConsumerWait(System.nanoTime() - start);
+		return available;
+	}
+
+	/**
+	 * Record the residency of a slot about to be delivered to a subscriber if
+	 * {@link #metrics} are configured.
+	 *
+	 * @param seqId the delivered sequence
+	 */
+	final void delivering(long seqId) {
+		final ProcessorMetrics metrics = this.metrics;
+		final long[] publishTimes = this.publishTimes;
+		if (metrics != null && publishTimes != null) {
+			metrics.recordResidency(System.nanoTime() -
+					publishTimes[(int) seqId & (publishTimes.length - 1)]);
+		}
+	}
+
+	/**
+	 * Publish the given signal if the backlog has a free slot, without ever blocking the
+	 * caller as {@link #onNext(Object)} does when the backlog is full. The same
+	 * threading rules as {@link #onNext(Object)} apply.
+	 *
+	 * @param o the signal to publish
+	 * @return true if the signal has been published, false if the backlog is full
+	 */
+	public final boolean offer(IN o) {
+		Objects.requireNonNull(o, "offer");
+		final long seqId = ringBuffer.tryNext(1);
+		if (seqId == RingBuffer.NO_CAPACITY) {
+			return false;
+		}
+		final Slot<IN> signal = ringBuffer.get(seqId);
+		signal.value = o;
+		publishSlot(seqId);
+		return true;
+	}
+
+	/**
+	 * Publish all the given signals with a single claim on the backlog if it has enough
+	 * free slots, without ever blocking the caller. Either all or none of the signals
+	 * are published. The same threading rules as {@link #onNext(Object)} apply.
+	 *
+	 * @param values the signals to publish, in order
+	 * @return true if the signals have been published, false if the backlog does not
+	 * have enough free slots
+	 * @throws IllegalArgumentException if there are more signals than the backlog size
+	 */
+	public final boolean offerAll(Collection<? extends IN> values) {
+		final int n = values.size();
+		if (n > maxClaim()) {
+			throw new IllegalArgumentException("Cannot offer more signals than the bufferSize " +
+					maxClaim() + ", was: " + n);
+		}
+		if (n == 0) {
+			return true;
+		}
+		for (IN o : values) {
+			Objects.requireNonNull(o, "offerAll");
+		}
+		final long hi = ringBuffer.tryNext(n);
+		if (hi == RingBuffer.NO_CAPACITY) {
+			return false;
+		}
+		final long lo = hi - (n - 1);
+		long seqId = lo;
+		for (IN o : values) {
+			ringBuffer.get(seqId++).value = o;
+		}
+		publishSlots(lo, hi);
+		return true;
+	}
+
 	@Override
 	final public void onSubscribe(final Subscription s) {
 		if (Operators.validate(upstreamSubscription, s)) {
@@ -490,7 +839,29 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 		if (TERMINATED.compareAndSet(this, 0, SHUTDOWN)) {
 			executor.shutdown();
 		}
-		readWait.signalAllWhenBlocking();
+		wakeAllWaiters();
+		releaseIfIdle();
+	}
+
+	/**
+	 * Release the resources held by the ring buffer, such as the file of a
+	 * {@code mappedBacklog}, once this processor terminated and no subscriber is running.
+	 * Either the termination or the last subscriber to stop releases them.
+	 */
+	final void releaseIfIdle() {
+		if (terminated != 0 && subscriberCount == 0) {
+			ringBuffer.dispose();
+		}
+	}
+
+	/**
+	 * Wake up every thread waiting on this processor so that it notices a status change.
+	 */
+	final void wakeAllWaiters() {
+		ringBuffer.getSequencer().waitStrategy.wakeAll();
+		readWait.wakeAll();
+		demandWait.wakeAll();
+		producerWait.wakeAll();
 	}
 
 	protected void doComplete() {
@@ -525,12 +896,11 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 
 		@Override
 		public void run() {
-			final long bufferSize = parent.ringBuffer.bufferSize();
-			final long limit = bufferSize == 1 ? bufferSize : bufferSize - Math.max(bufferSize >> 2, 1);
+			final long limit = parent.requestLowTide;
 			long cursor = -1;
 			try {
 				parent.run();
-				upstream.request(bufferSize);
+				upstream.request(parent.requestHighTide);
 
 				long c;
 				//noinspection InfiniteLoopStatement
@@ -539,6 +909,7 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 					cursor = parent.readWait.waitFor(c, readCount, parent);
 					if (postWaitCallback != null) {
 						postWaitCallback.accept(cursor);
+						parent.producerWait.signalAllWhenBlocking();
 					}
 					//spinObserver.accept(null);
 					upstream.request(limit + (cursor - c));
@@ -572,6 +943,7 @@ abstract class EventLoopProcessor<IN> extends FluxProcessor<IN, IN>
 				upstreamSubscription = null;
 				cancel();
 			}
+			releaseIfIdle();
 		}
 	}
 
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import reactor.util.annotation.Nullable;
+
+/**
+ * Tracks the minimum of many gating sequences with a tree of nodes, each caching the
+ * minimum of at most {@code fanOut} children. Only the root value is registered as a
+ * gating sequence of the {@link RingBuffer}, so that a producer wrap check reads a
+ * single sequence whatever the number of subscribers.
+ * <p>
+ * A subscriber reports its progress with {@link Node#childMoved()} after setting its
+ * sequence. A node refresh is skipped when another thread is already refreshing it, in
+ * which case that thread refreshes it once more, and a refreshed node only refreshes its
+ * parent when its minimum moved, so that a refresh costs O(fanOut * depth) at worst. A
+ * cached minimum can lag behind its children but is never ahead of them, which at worst
+ * makes producers wait a little longer.
+ */
+final class GatingSequenceTree {
+
+	final RingBuffer<?>    ringBuffer;
+	final int              fanOut;
+	final List<List<Node>> levels;
+
+	GatingSequenceTree(RingBuffer<?> ringBuffer, int fanOut) {
+		if (fanOut < 2) {
+			throw new IllegalArgumentException("fanOut must be greater than 1, was: " + fanOut);
+		}
+		this.ringBuffer = ringBuffer;
+		this.fanOut = fanOut;
+		this.levels = new ArrayList<>();
+
+		Node root = new Node();
+		List<Node> leaves = new ArrayList<>();
+		leaves.add(root);
+		levels.add(leaves);
+		ringBuffer.addGatingSequence(root.value);
+	}
+
+	/**
+	 * Start tracking the given sequence.
+	 *
+	 * @param sequence the gating sequence to track
+	 * @return the leaf {@link Node} to report the sequence progress to
+	 */
+	synchronized Node add(RingBuffer.Sequence sequence) {
+		Node leaf = vacant(0);
+		leaf.add(sequence);
+		return leaf;
+	}
+
+	/**
+	 * Stop tracking the given sequence.
+	 *
+	 * @param sequence the gating sequence to remove
+	 * @param leaf the leaf {@link Node} returned when the sequence was added
+	 */
+	synchronized void remove(RingBuffer.Sequence sequence, Node leaf) {
+		leaf.remove(sequence);
+		ringBuffer.getSequencer().producerWaitStrategy.signalAllWhenBlocking();
+	}
+
+	/**
+	 * Return the depth of the tree, 1 when a single leaf is the root.
+	 *
+	 * @return the depth of the tree
+	 */
+	synchronized int depth() {
+		return levels.size();
+	}
+
+	Node vacant(int level) {
+		List<Node> nodes = levels.get(level);
+		for (Node node : nodes) {
+			if (node.children.length < fanOut) {
+				return node;
+			}
+		}
+
+		Node node = new Node();
+		nodes.add(node);
+		if (level == levels.size() - 1) {
+			//the level is full and holds the root: move the root under a new one
+			Node formerRoot = nodes.get(0);
+			Node root = new Node();
+			List<Node> rootLevel = new ArrayList<>();
+			rootLevel.add(root);
+			levels.add(rootLevel);
+
+			formerRoot.parent = root;
+			root.add(formerRoot.value);
+			ringBuffer.addGatingSequence(root.value);
+			ringBuffer.removeGatingSequence(formerRoot.value);
+		}
+
+		Node parent = vacant(level + 1);
+		node.parent = parent;
+		parent.add(node.value);
+		return node;
+	}
+
+	/**
+	 * A node of the tree caching the minimum of its children sequences, which are either
+	 * subscriber sequences or the value of child nodes. An empty node caches
+	 * {@link Long#MAX_VALUE} so that it does not gate anything.
+	 */
+	static final class Node {
+
+		static final RingBuffer.Sequence[] EMPTY = new RingBuffer.Sequence[0];
+
+		final RingBuffer.Sequence value = RingBuffer.newSequence(Long.MAX_VALUE);
+		final ReentrantLock       lock  = new ReentrantLock();
+
+		volatile RingBuffer.Sequence[] children = EMPTY;
+		volatile boolean               dirty;
+		@Nullable
+		volatile Node                  parent;
+
+		/**
+		 * Report that a child sequence moved forward. The node is refreshed whether or not
+		 * the child was holding it back: comparing against a cached minimum that a
+		 * concurrent refresh is about to overwrite could lose the update for good.
+		 */
+		void childMoved() {
+			update();
+		}
+
+		/**
+		 * Refresh the cached minimum, unless another thread is doing it in which case it
+		 * will refresh it once more.
+		 */
+		void update() {
+			dirty = true;
+			while (dirty && lock.tryLock()) {
+				try {
+					do {
+						dirty = false;
+						refresh();
+					}
+					while (dirty);
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		void add(RingBuffer.Sequence child) {
+			lock.lock();
+			try {
+				RingBuffer.Sequence[] current = children;
+				RingBuffer.Sequence[] updated = Arrays.copyOf(current, current.length + 1);
+				updated[current.length] = child;
+				children = updated;
+				refresh();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		void remove(RingBuffer.Sequence child) {
+			lock.lock();
+			try {
+				RingBuffer.Sequence[] current = children;
+				for (int i = 0; i < current.length; i++) {
+					if (current[i] == child) {
+						RingBuffer.Sequence[] updated = new RingBuffer.Sequence[current.length - 1];
+						System.arraycopy(current, 0, updated, 0, i);
+						System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+						children = updated;
+						refresh();
+						return;
+					}
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Recompute the cached minimum while holding the lock, and propagate a change to
+		 * the parent: synchronously when the minimum went down after a child was added,
+		 * lazily otherwise.
+		 */
+		void refresh() {
+			long previous = value.getAsLong();
+			long minimum = RingBuffer.getMinimumSequence(children, Long.MAX_VALUE);
+			value.set(minimum);
+
+			Node p = parent;
+			if (p == null || minimum == previous) {
+				return;
+			}
+			if (minimum < previous) {
+				p.lock.lock();
+				try {
+					p.refresh();
+				}
+				finally {
+					p.lock.unlock();
+				}
+			}
+			else {
+				p.childMoved();
+			}
+		}
+	}
+}
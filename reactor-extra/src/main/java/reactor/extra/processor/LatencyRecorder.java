@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import reactor.core.Scannable;
+
+/**
+ * A {@link ProcessorMetrics} recording each time in a histogram with logarithmic
+ * buckets, each power of two being split in {@code 32} linear sub-buckets so that
+ * recorded values are kept within about 3% of their actual value, like an
+ * HdrHistogram with a fixed precision. Recording is lock-free and allocation-free once
+ * warmed up, threads recording into histograms striped by thread.
+ * <p>
+ * A {@link Snapshot} of the histograms is taken with
+ * {@link EventLoopProcessor#metricsSnapshot()} or by scanning the processor for
+ * {@link #SNAPSHOT}, and includes the processor backlog depth at that time.
+ */
+public final class LatencyRecorder implements ProcessorMetrics {
+
+	/**
+	 * The {@link Scannable} attribute returning a {@link Snapshot} of the
+	 * {@link LatencyRecorder} of a processor, if it has one.
+	 */
+	public static final Scannable.Attr<Snapshot> SNAPSHOT = new Scannable.Attr<Snapshot>(null) {};
+
+	final Recorder publishWait  = new Recorder();
+	final Recorder consumerWait = new Recorder();
+	final Recorder residency    = new Recorder();
+
+	@Override
+	public void recordPublishWait(long nanos) {
+		publishWait.record(nanos);
+	}
+
+	@Override
+	public void recordConsumerWait(long nanos) {
+		consumerWait.record(nanos);
+	}
+
+	@Override
+	public void recordResidency(long nanos) {
+		residency.record(nanos);
+	}
+
+	/**
+	 * Take a snapshot of the recorded times.
+	 *
+	 * @param pending the backlog depth to report in the snapshot
+	 * @return a snapshot of the recorded times
+	 */
+	public Snapshot snapshot(long pending) {
+		return new Snapshot(publishWait.snapshot(),
+				consumerWait.snapshot(),
+				residency.snapshot(),
+				pending);
+	}
+
+	/**
+	 * Clear all the recorded times, for instance after taking a periodic snapshot.
+	 * Times recorded concurrently with the reset may be lost.
+	 */
+	public void reset() {
+		publishWait.reset();
+		consumerWait.reset();
+		residency.reset();
+	}
+
+	static final int SUB_BUCKET_BITS  = 5;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int BUCKET_COUNT     = SUB_BUCKET_COUNT * (64 - SUB_BUCKET_BITS);
+
+	/**
+	 * Return the bucket of a value, values lower than {@link #SUB_BUCKET_COUNT} having
+	 * their own bucket.
+	 *
+	 * @param value a positive value
+	 * @return the bucket index
+	 */
+	static int bucket(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) Math.max(value, 0L);
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT * (shift + 1) + subBucket;
+	}
+
+	/**
+	 * Return the highest value recorded in a bucket.
+	 *
+	 * @param bucket the bucket index
+	 * @return the highest value of the bucket
+	 */
+	static long highestValue(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKET_COUNT - 1;
+		long subBucket = bucket % SUB_BUCKET_COUNT;
+		return ((SUB_BUCKET_COUNT + subBucket + 1L) << shift) - 1L;
+	}
+
+	/**
+	 * The number of stripes of each recorder, a power of two about twice the number
+	 * of CPUs so that threads recording concurrently rarely share one.
+	 */
+	static final int STRIPE_COUNT =
+			Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) << 1, 64);
+
+	/**
+	 * Return the stripe of the current thread, spreading the thread ids which are
+	 * usually sequential.
+	 *
+	 * @return the stripe index
+	 */
+	static int stripe() {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (STRIPE_COUNT - 1);
+	}
+
+	/**
+	 * A histogram striped by thread, each stripe being allocated on its first record,
+	 * so that threads recording concurrently do not contend on the same counters. The
+	 * stripes are merged on {@link #snapshot()}.
+	 */
+	static final class Recorder {
+
+		final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<>(STRIPE_COUNT);
+
+		void record(long nanos) {
+			int index = stripe();
+			Stripe stripe = stripes.get(index);
+			if (stripe == null) {
+				stripes.compareAndSet(index, null, new Stripe());
+				stripe = stripes.get(index);
+			}
+			stripe.record(nanos);
+		}
+
+		Histogram snapshot() {
+			long[] snapshot = new long[BUCKET_COUNT];
+			long count = 0L;
+			long total = 0L;
+			long max = 0L;
+			for (int s = 0; s < STRIPE_COUNT; s++) {
+				Stripe stripe = stripes.get(s);
+				if (stripe == null) {
+					continue;
+				}
+				for (int i = 0; i < BUCKET_COUNT; i++) {
+					long c = stripe.counts.get(i);
+					snapshot[i] += c;
+					count += c;
+				}
+				total += stripe.total.get();
+				max = Math.max(max, stripe.max.get());
+			}
+			return new Histogram(snapshot, count, total, max);
+		}
+
+		void reset() {
+			for (int s = 0; s < STRIPE_COUNT; s++) {
+				Stripe stripe = stripes.get(s);
+				if (stripe != null) {
+					stripe.reset();
+				}
+			}
+		}
+	}
+
+	static final class Stripe {
+
+		final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+		final AtomicLong      total  = new AtomicLong();
+		final AtomicLong      max    = new AtomicLong();
+
+		void record(long nanos) {
+			counts.incrementAndGet(bucket(nanos));
+			total.addAndGet(nanos);
+			long current;
+			while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+				//retry while a lower maximum is being replaced
+			}
+		}
+
+		void reset() {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts.set(i, 0L);
+			}
+			total.set(0L);
+			max.set(0L);
+		}
+	}
+
+	/**
+	 * An immutable distribution of times, in nanoseconds.
+	 */
+	public static final class Histogram {
+
+		final long[] counts;
+		final long   count;
+		final long   total;
+		final long   max;
+
+		Histogram(long[] counts, long count, long total, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		/**
+		 * Return the number of recorded times.
+		 *
+		 * @return the number of recorded times
+		 */
+		public long count() {
+			return count;
+		}
+
+		/**
+		 * Return the highest recorded time.
+		 *
+		 * @return the highest recorded time, 0 if none was recorded
+		 */
+		public long max() {
+			return max;
+		}
+
+		/**
+		 * Return the mean of the recorded times.
+		 *
+		 * @return the mean recorded time, 0 if none was recorded
+		 */
+		public double mean() {
+			return count == 0L ? 0d : (double) total / count;
+		}
+
+		/**
+		 * Return the time at or below which the given percentage of the recorded times
+		 * fall, within the histogram precision.
+		 *
+		 * @param percentile the percentage, between 0 and 100
+		 * @return the time at the given percentile, 0 if none was recorded
+		 */
+		public long valueAtPercentile(double percentile) {
+			if (percentile < 0d || percentile > 100d) {
+				throw new IllegalArgumentException("percentile must be between 0 and 100, " +
+						"was: " + percentile);
+			}
+			if (count == 0L) {
+				return 0L;
+			}
+			long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+			long seen = 0L;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(highestValue(i), max);
+				}
+			}
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return "{count=" + count +
+					", mean=" + (long) mean() +
+					", p50=" + valueAtPercentile(50d) +
+					", p99=" + valueAtPercentile(99d) +
+					", p99.9=" + valueAtPercentile(99.9d) +
+					", max=" + max + "}";
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the times recorded by a {@link LatencyRecorder}.
+	 */
+	public static final class Snapshot {
+
+		final Histogram publishWait;
+		final Histogram consumerWait;
+		final Histogram residency;
+		final long      pending;
+
+		Snapshot(Histogram publishWait, Histogram consumerWait, Histogram residency, long pending) {
+			this.publishWait = publishWait;
+			this.consumerWait = consumerWait;
+			this.residency = residency;
+			this.pending = pending;
+		}
+
+		/**
+		 * Return the times publishers waited for a free slot.
+		 *
+		 * @return the publish wait times
+		 */
+		public Histogram publishWait() {
+			return publishWait;
+		}
+
+		/**
+		 * Return the times subscribers waited for new signals.
+		 *
+		 * @return the consumer wait times
+		 */
+		public Histogram consumerWait() {
+			return consumerWait;
+		}
+
+		/**
+		 * Return the times between the publication and the delivery of signals.
+		 *
+		 * @return the residency times
+		 */
+		public Histogram residency() {
+			return residency;
+		}
+
+		/**
+		 * Return the backlog depth of the processor when the snapshot was taken, as
+		 * reported by its {@code getPending()}.
+		 *
+		 * @return the backlog depth
+		 */
+		public long pending() {
+			return pending;
+		}
+
+		@Override
+		public String toString() {
+			return "Snapshot{publishWait=" + publishWait +
+					", consumerWait=" + consumerWait +
+					", residency=" + residency +
+					", pending=" + pending + "}";
+		}
+	}
+}
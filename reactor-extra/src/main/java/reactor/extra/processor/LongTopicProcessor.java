@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongConsumer;
+
+import reactor.util.annotation.Nullable;
+
+/**
+ * A publish-subscribe processor dispatching primitive {@code long} values to
+ * {@link LongConsumer} subscribers, very much like a {@link TopicProcessor} without
+ * boxing: values are stored in a {@code long[]} ring buffer and read in place by each
+ * subscriber event loop.
+ * <p>
+ * Each subscriber is assigned a unique thread and receives every value published after
+ * it subscribed. When the backlog has been completely booked, the publisher waits on
+ * the configured producer {@link WaitStrategy} for the slowest subscriber to catch up.
+ * {@link #onNext(long)} must not be called concurrently unless the processor has been
+ * built with {@link Builder#share(boolean)}.
+ */
+public final class LongTopicProcessor extends PrimitiveTopicProcessor<LongConsumer> {
+
+	/**
+	 * Create a new {@link LongTopicProcessor} {@link Builder} with default properties.
+	 * @return new LongTopicProcessor builder
+	 */
+	public static Builder<LongTopicProcessor> builder() {
+		return new Builder<>(LongTopicProcessor.class.getSimpleName(), LongTopicProcessor::new);
+	}
+
+	final long[] values;
+
+	LongTopicProcessor(String name,
+			@Nullable ExecutorService executor,
+			int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			boolean share) {
+		super(name, executor, bufferSize, waitStrategy, producerWaitStrategy, share);
+		this.values = new long[bufferSize];
+	}
+
+	/**
+	 * Publish the given value, waiting on the producer {@link WaitStrategy} if the
+	 * backlog is full.
+	 *
+	 * @param value the value to publish
+	 */
+	public void onNext(long value) {
+		final long seqId = sequencer.next();
+		values[(int) seqId & mask] = value;
+		sequencer.publish(seqId);
+	}
+
+	/**
+	 * Publish the given value if the backlog has a free slot, without ever blocking the
+	 * caller.
+	 *
+	 * @param value the value to publish
+	 * @return true if the value has been published, false if the backlog is full
+	 */
+	public boolean offer(long value) {
+		final long seqId = sequencer.tryNext(1);
+		if (seqId == RingBuffer.NO_CAPACITY) {
+			return false;
+		}
+		values[(int) seqId & mask] = value;
+		sequencer.publish(seqId);
+		return true;
+	}
+
+	@Override
+	void deliver(LongConsumer consumer, long sequence) {
+		consumer.accept(values[(int) sequence & mask]);
+	}
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Supplier;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.extra.processor.EventLoopProcessor.Slot;
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * A {@link RingBuffer} keeping its signals serialized in a memory-mapped file rather
+ * than on heap.
+ * <p>
+ * A claimed slot is filled on heap, then serialized into the file when it is published
+ * and its heap reference is cleared. Reading a published slot deserializes a fresh
+ * {@link Slot}. Signals that do not fit in a file slot are kept on heap until they are
+ * overwritten, and are not durable.
+ * <p>
+ * The file starts with a header describing the layout and the consumed sequence,
+ * followed by one fixed-size slot per ring buffer entry holding the slot sequence, the
+ * payload length and the payload. The sequence is written last, so that
+ * {@link #replay(Path, BacklogSerializer)} only reads fully written slots after a crash.
+ * <p>
+ * The consumed sequence is the slowest gating sequence, recorded four times per lap of
+ * publications, when a gating sequence is removed and on {@link #dispose()}, so that a
+ * replay skips the signals every subscriber had already consumed. Signals consumed after
+ * the last record are replayed again.
+ *
+ * @param <E> the type of the signals
+ */
+final class MappedRingBuffer<E> extends RingBuffer<Slot<E>> {
+
+	static final Logger log = Loggers.getLogger(MappedRingBuffer.class);
+
+	static final int MAGIC        = 0x52424D46;
+	static final int HEADER_SIZE  = 64;
+	static final int SLOT_HEADER  = 12;
+	static final int SPILLED      = -2;
+	static final int CONSUMED     = 16;
+
+	/**
+	 * The configuration of a mapped backlog, as set on the processor builders.
+	 *
+	 * @param <E> the type of the signals
+	 */
+	static final class Backlog<E> {
+
+		final Path                 file;
+		final BacklogSerializer<E> serializer;
+		final int                  maxSerializedSize;
+
+		Backlog(Path file, BacklogSerializer<E> serializer, int maxSerializedSize) {
+			if (maxSerializedSize < 1) {
+				throw new IllegalArgumentException("maxSerializedSize must be strictly positive, " +
+						"was: " + maxSerializedSize);
+			}
+			this.file = Objects.requireNonNull(file, "file");
+			this.serializer = Objects.requireNonNull(serializer, "serializer");
+			this.maxSerializedSize = maxSerializedSize;
+		}
+	}
+
+	final RingBufferProducer   sequenceProducer;
+	final BacklogSerializer<E> serializer;
+	final int                  bufferSize;
+	final int                  indexMask;
+	final int                  slotSize;
+	final int                  segmentShift;
+	final int                  segmentMask;
+	final int                  recordMask;
+	final FileChannel          channel;
+	final MappedByteBuffer     header;
+	final MappedByteBuffer[]   segments;
+	final Slot<E>[]            pending;
+	final Object[]             spilled;
+
+	volatile int disposed;
+	@SuppressWarnings("rawtypes")
+	static final AtomicIntegerFieldUpdater<MappedRingBuffer> DISPOSED =
+			AtomicIntegerFieldUpdater.newUpdater(MappedRingBuffer.class, "disposed");
+
+	@SuppressWarnings("unchecked")
+	MappedRingBuffer(Supplier<Slot<E>> eventFactory,
+			RingBufferProducer sequenceProducer,
+			Backlog<E> backlog) {
+		this.sequenceProducer = sequenceProducer;
+		this.serializer = backlog.serializer;
+		this.bufferSize = sequenceProducer.getBufferSize();
+		this.indexMask = bufferSize - 1;
+		this.recordMask = Math.max(bufferSize >> 2, 1) - 1;
+		this.slotSize = backlog.maxSerializedSize + SLOT_HEADER;
+		if (slotSize < 0) {
+			throw new IllegalArgumentException("maxSerializedSize is too large: " + backlog.maxSerializedSize);
+		}
+		int slotsPerSegment = Math.min(bufferSize, Integer.highestOneBit(Integer.MAX_VALUE / slotSize));
+		this.segmentShift = Integer.numberOfTrailingZeros(slotsPerSegment);
+		this.segmentMask = slotsPerSegment - 1;
+
+		this.pending = new Slot[bufferSize];
+		for (int i = 0; i < bufferSize; i++) {
+			pending[i] = eventFactory.get();
+		}
+		this.spilled = new Object[bufferSize];
+
+		try {
+			this.channel = FileChannel.open(backlog.file,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		}
+		catch (IOException e) {
+			throw Exceptions.propagate(e);
+		}
+		try {
+			channel.truncate(HEADER_SIZE + (long) bufferSize * slotSize);
+			this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putInt(0, MAGIC);
+			header.putInt(4, bufferSize);
+			header.putInt(8, slotSize);
+			header.putLong(CONSUMED, INITIAL_CURSOR_VALUE);
+			this.segments = map(channel, FileChannel.MapMode.READ_WRITE, bufferSize, slotsPerSegment, slotSize);
+		}
+		catch (IOException e) {
+			close(channel);
+			throw Exceptions.propagate(e);
+		}
+
+		for (int i = 0; i < bufferSize; i++) {
+			segment(i).putLong(offset(i), INITIAL_CURSOR_VALUE);
+		}
+	}
+
+	static MappedByteBuffer[] map(FileChannel channel,
+			FileChannel.MapMode mode,
+			int bufferSize,
+			int slotsPerSegment,
+			int slotSize) throws IOException {
+		MappedByteBuffer[] segments = new MappedByteBuffer[bufferSize / slotsPerSegment];
+		long segmentSize = (long) slotsPerSegment * slotSize;
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = channel.map(mode, HEADER_SIZE + i * segmentSize, segmentSize);
+		}
+		return segments;
+	}
+
+	static void close(FileChannel channel) {
+		try {
+			channel.close();
+		}
+		catch (IOException e) {
+			log.debug("Could not close the backlog file", e);
+		}
+	}
+
+	/**
+	 * Read the signals retained in a backlog file, oldest first. Every signal still
+	 * held by the ring buffer when the file was last written is replayed, unless every
+	 * subscriber had consumed it when the consumed sequence was last recorded. Signals
+	 * that were kept on heap are skipped.
+	 *
+	 * @param file the backlog file
+	 * @param serializer the serializer the backlog was written with
+	 * @param <E> the type of the signals
+	 * @return a {@link Flux} of the retained signals
+	 */
+	static <E> Flux<E> replay(Path file, BacklogSerializer<E> serializer) {
+		return Flux.defer(() -> {
+			final int bufferSize;
+			final int slotSize;
+			final long consumed;
+			final MappedByteBuffer[] segments;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+				if (header.getInt(0) != MAGIC) {
+					throw new IllegalStateException("Not a backlog file: " + file);
+				}
+				bufferSize = header.getInt(4);
+				slotSize = header.getInt(8);
+				consumed = header.getLong(CONSUMED);
+				segments = map(channel, FileChannel.MapMode.READ_ONLY, bufferSize,
+						Math.min(bufferSize, Integer.highestOneBit(Integer.MAX_VALUE / slotSize)),
+						slotSize);
+			}
+			catch (IOException e) {
+				throw Exceptions.propagate(e);
+			}
+
+			final int slotsPerSegment = bufferSize / segments.length;
+			long last = INITIAL_CURSOR_VALUE;
+			for (int i = 0; i < bufferSize; i++) {
+				last = Math.max(last, segments[i / slotsPerSegment].getLong((i % slotsPerSegment) * slotSize));
+			}
+			final long end = last;
+
+			return Flux.<E, Long>generate(() -> Math.max(consumed + 1L, Math.max(0L, end - bufferSize + 1)), (next, sink) -> {
+				for (long sequence = next; sequence <= end; sequence++) {
+					int index = (int) sequence & (bufferSize - 1);
+					ByteBuffer segment = segments[index / slotsPerSegment];
+					int offset = (index % slotsPerSegment) * slotSize;
+					int length = segment.getInt(offset + 8);
+					if (segment.getLong(offset) == sequence && length >= 0) {
+						sink.next(serializer.read(payload(segment, offset, length)));
+						return sequence + 1;
+					}
+				}
+				sink.complete();
+				return end + 1;
+			});
+		});
+	}
+
+	static ByteBuffer payload(ByteBuffer segment, int offset, int length) {
+		ByteBuffer payload = segment.duplicate();
+		payload.limit(offset + SLOT_HEADER + length)
+		       .position(offset + SLOT_HEADER);
+		return payload.slice();
+	}
+
+	final MappedByteBuffer segment(int index) {
+		return segments[index >>> segmentShift];
+	}
+
+	final int offset(int index) {
+		return (index & segmentMask) * slotSize;
+	}
+
+	/**
+	 * Serialize the value of a claimed slot into the file.
+	 *
+	 * @param sequence the claimed sequence to write
+	 * @return the serializer error if the value had to be kept on heap because of it,
+	 * null otherwise
+	 */
+	@Nullable
+	final RuntimeException write(long sequence) {
+		int index = (int) sequence & indexMask;
+		Slot<E> slot = pending[index];
+		E value = slot.value;
+		slot.value = null;
+
+		MappedByteBuffer segment = segment(index);
+		int offset = offset(index);
+		int length;
+		RuntimeException error = null;
+		ByteBuffer target = segment.duplicate();
+		target.limit(offset + slotSize)
+		      .position(offset + SLOT_HEADER);
+		try {
+			serializer.write(value, target);
+			length = target.position() - offset - SLOT_HEADER;
+			spilled[index] = null;
+		}
+		catch (BufferOverflowException boe) {
+			length = SPILLED;
+			spilled[index] = value;
+		}
+		catch (RuntimeException e) {
+			length = SPILLED;
+			spilled[index] = value;
+			error = e;
+		}
+		segment.putInt(offset + 8, length);
+		segment.putLong(offset, sequence);
+		return error;
+	}
+
+	/**
+	 * Record the slowest gating sequence as the consumed sequence of the file. Without
+	 * any gating sequence, nobody consumed the signals published since the last record.
+	 */
+	final void recordConsumed() {
+		RingBuffer.Sequence[] gatingSequences = sequenceProducer.gatingSequences;
+		if (gatingSequences.length != 0) {
+			long consumed = RingBuffer.getMinimumSequence(gatingSequences, Long.MAX_VALUE);
+			//concurrent producers may record an older value, which only replays more
+			if (consumed > header.getLong(CONSUMED)) {
+				header.putLong(CONSUMED, consumed);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	Slot<E> get(long sequence) {
+		int index = (int) sequence & indexMask;
+		if (!sequenceProducer.isAvailable(sequence)) {
+			return pending[index];
+		}
+		MappedByteBuffer segment = segment(index);
+		int offset = offset(index);
+		int length = segment.getInt(offset + 8);
+		Slot<E> slot = new Slot<>();
+		if (length == SPILLED) {
+			slot.value = (E) spilled[index];
+		}
+		else {
+			slot.value = serializer.read(payload(segment, offset, length));
+		}
+		return slot;
+	}
+
+	@Override
+	void publish(long sequence) {
+		RuntimeException error = write(sequence);
+		if ((sequence & recordMask) == 0) {
+			recordConsumed();
+		}
+		//the slot is published anyway so that subscribers are not stalled on it
+		sequenceProducer.publish(sequence);
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	@Override
+	void publish(long lo, long hi) {
+		RuntimeException error = null;
+		for (long l = lo; l <= hi; l++) {
+			RuntimeException e = write(l);
+			if (error == null) {
+				error = e;
+			}
+		}
+		if ((lo & ~recordMask) != (hi & ~recordMask) || (lo & recordMask) == 0) {
+			recordConsumed();
+		}
+		sequenceProducer.publish(lo, hi);
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	@Override
+	long next() {
+		return sequenceProducer.next();
+	}
+
+	@Override
+	long next(int n) {
+		return sequenceProducer.next(n);
+	}
+
+	@Override
+	long tryNext(int n) {
+		return sequenceProducer.tryNext(n);
+	}
+
+	@Override
+	void addGatingSequence(Sequence gatingSequence) {
+		sequenceProducer.addGatingSequence(gatingSequence);
+	}
+
+	@Override
+	long getMinimumGatingSequence() {
+		return getMinimumGatingSequence(null);
+	}
+
+	@Override
+	long getMinimumGatingSequence(@Nullable Sequence sequence) {
+		return sequenceProducer.getMinimumSequence(sequence);
+	}
+
+	@Override
+	boolean removeGatingSequence(Sequence sequence) {
+		//a leaving subscriber may be the last one to have consumed the latest signals,
+		//a late subscriber of a released backlog must not hide them from a replay
+		if (disposed == 0) {
+			recordConsumed();
+		}
+		return sequenceProducer.removeGatingSequence(sequence);
+	}
+
+	@Override
+	Reader newReader() {
+		return sequenceProducer.newBarrier();
+	}
+
+	@Override
+	long getCursor() {
+		return sequenceProducer.getCursor();
+	}
+
+	@Override
+	int bufferSize() {
+		return bufferSize;
+	}
+
+	@Override
+	int getPending() {
+		return (int) sequenceProducer.getPending();
+	}
+
+	@Override
+	RingBufferProducer getSequencer() {
+		return sequenceProducer;
+	}
+
+	/**
+	 * Record the consumed sequence, then close the backlog file. The file stays mapped
+	 * until this ring buffer is garbage collected, as unmapping it while a late
+	 * subscriber or producer could still access it would crash the JVM.
+	 */
+	@Override
+	void dispose() {
+		if (!DISPOSED.compareAndSet(this, 0, 1)) {
+			return;
+		}
+		recordConsumed();
+		close(channel);
+	}
+
+	@Override
+	public String toString() {
+		return "MappedRingBuffer{" +
+				"bufferSize=" + bufferSize +
+				", slotSize=" + slotSize +
+				", sequenceProducer=" + sequenceProducer +
+				'}';
+	}
+}
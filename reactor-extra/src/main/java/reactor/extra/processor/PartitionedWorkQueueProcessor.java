@@ -0,0 +1,808 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.FluxProcessor;
+import reactor.core.publisher.Operators;
+import reactor.util.annotation.Nullable;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+/**
+ * A work-queue processor routing each signal by key to one of a fixed number of
+ * partitions, each backed by its own {@link WorkQueueProcessor} ring buffer. Every
+ * partition is consumed by at most one subscriber at a time, so that signals sharing a
+ * key are delivered in order to a single subscriber while distinct keys are processed in
+ * parallel.
+ * <p>
+ * The partitions are spread evenly over the subscribers, and rebalanced whenever a
+ * subscriber joins or leaves. A subscriber serving several partitions receives their
+ * signals one at a time, its demand being shared between them. A partition moving to
+ * another subscriber is only taken over once its previous subscriber delivered its last
+ * signal, the signals it claimed without delivering them going first to the next one,
+ * so that the order of each key is preserved. Signals published while no subscriber is
+ * connected wait in their partition, throttling its producers once its ring buffer is
+ * full. Subscribing while there are as many subscribers as partitions is rejected with
+ * an {@link IllegalStateException}. The partition assignments can be observed with
+ * {@link Builder#onPartitionAssigned(IntConsumer)} and
+ * {@link Builder#onPartitionReleased(IntConsumer)}.
+ * <p>
+ * The upstream {@link Subscription} is requested in an unbounded fashion, publishers
+ * being throttled by the ring buffer of the partition they publish to.
+ *
+ * @param <E> Type of dispatched signal
+ */
+public final class PartitionedWorkQueueProcessor<E> extends FluxProcessor<E, E> {
+
+	/**
+	 * {@link PartitionedWorkQueueProcessor} builder that can be used to create new
+	 * processors. Instantiate it through the
+	 * {@link PartitionedWorkQueueProcessor#builder(Function)} static method:
+	 * <p>
+	 * {@code PartitionedWorkQueueProcessor<Order> processor = PartitionedWorkQueueProcessor.<Order>builder(Order::account).build()}
+	 *
+	 * @param <T> Type of dispatched signal
+	 */
+	public final static class Builder<T> {
+
+		final Function<? super T, ?> keyFunction;
+
+		String          name;
+		ExecutorService executor;
+		int             partitions;
+		int             bufferSize;
+		WaitStrategy    waitStrategy;
+		WaitStrategy    producerWaitStrategy;
+		boolean         share;
+		IntConsumer     onPartitionAssigned;
+		IntConsumer     onPartitionReleased;
+
+		Builder(Function<? super T, ?> keyFunction) {
+			this.keyFunction = Objects.requireNonNull(keyFunction, "keyFunction");
+			this.partitions = Runtime.getRuntime().availableProcessors();
+			this.bufferSize = Queues.SMALL_BUFFER_SIZE;
+		}
+
+		/**
+		 * Configures name for this builder. Default value is PartitionedWorkQueueProcessor.
+		 * Name is set to default if the provided <code>name</code> is null.
+		 * @param name Use a new cached ExecutorService per partition and assign this name,
+		 *             suffixed by the partition index, to the created threads if
+		 *             {@link #executor(ExecutorService)} is not configured.
+		 * @return builder with provided name
+		 */
+		public Builder<T> name(@Nullable String name) {
+			if (executor != null)
+				throw new IllegalArgumentException("Executor service is configured, name will not be used.");
+			this.name = name;
+			return this;
+		}
+
+		/**
+		 * Configures the number of partitions, and thus the maximum number of concurrent
+		 * subscribers. Default value is the number of available processors.
+		 * @param partitions the number of partitions, strictly positive
+		 * @return builder with provided number of partitions
+		 */
+		public Builder<T> partitions(int partitions) {
+			if (partitions < 1) {
+				throw new IllegalArgumentException("partitions must be strictly positive, " +
+						"was: " + partitions);
+			}
+			this.partitions = partitions;
+			return this;
+		}
+
+		/**
+		 * Configures the buffer size of each partition. Default value is
+		 * {@link Queues#SMALL_BUFFER_SIZE}.
+		 * @param bufferSize the internal buffer size of each partition, must be a power of 2
+		 * @return builder with provided buffer size
+		 */
+		public Builder<T> bufferSize(int bufferSize) {
+			if (!Queues.isPowerOfTwo(bufferSize)) {
+				throw new IllegalArgumentException("bufferSize must be a power of 2 : " + bufferSize);
+			}
+
+			if (bufferSize < 1){
+				throw new IllegalArgumentException("bufferSize must be strictly positive, " +
+						"was: "+bufferSize);
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Configures the {@link WaitStrategy} of each partition subscriber. Default value
+		 * is {@link WaitStrategy#liteBlocking()}.
+		 * @param waitStrategy A WaitStrategy to use instead of the default one
+		 * @return builder with provided wait strategy
+		 */
+		public Builder<T> waitStrategy(@Nullable WaitStrategy waitStrategy) {
+			this.waitStrategy = waitStrategy;
+			return this;
+		}
+
+		/**
+		 * Configures the {@link WaitStrategy} producers use while the ring buffer of a
+		 * partition is full. Default value is {@link WaitStrategy#parking(int)} with no
+		 * retries.
+		 * @param producerWaitStrategy A WaitStrategy to use instead of the default one
+		 * @return builder with provided producer wait strategy
+		 */
+		public Builder<T> producerWaitStrategy(@Nullable WaitStrategy producerWaitStrategy) {
+			this.producerWaitStrategy = producerWaitStrategy;
+			return this;
+		}
+
+		/**
+		 * Configures an {@link ExecutorService} shared by the partitions to execute an
+		 * event-loop consuming the ring buffer of each partition having a subscriber. Name configured
+		 * using {@link #name(String)} will be ignored if executor is set.
+		 * @param executor A provided ExecutorService to manage threading infrastructure
+		 * @return builder with provided executor
+		 */
+		public Builder<T> executor(@Nullable ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Configures sharing state for this builder. A shared Processor authorizes
+		 * concurrent onNext calls and is suited for multi-threaded publisher that
+		 * will fan-in data.
+		 * @param share true to support concurrent onNext calls
+		 * @return builder with specified sharing
+		 */
+		public Builder<T> share(boolean share) {
+			this.share = share;
+			return this;
+		}
+
+		/**
+		 * Configures a callback invoked with the index of a partition when a subscriber
+		 * takes it over, before the subscriber receives any signal from it.
+		 * @param onPartitionAssigned the partition assignment callback
+		 * @return builder with provided partition assignment callback
+		 */
+		public Builder<T> onPartitionAssigned(@Nullable IntConsumer onPartitionAssigned) {
+			this.onPartitionAssigned = onPartitionAssigned;
+			return this;
+		}
+
+		/**
+		 * Configures a callback invoked with the index of a partition when its subscriber
+		 * is done with it, as it cancelled, terminated or the partition moved to another
+		 * subscriber, after which the partition can be taken over by its next subscriber.
+		 * @param onPartitionReleased the partition release callback
+		 * @return builder with provided partition release callback
+		 */
+		public Builder<T> onPartitionReleased(@Nullable IntConsumer onPartitionReleased) {
+			this.onPartitionReleased = onPartitionReleased;
+			return this;
+		}
+
+		/**
+		 * Creates a new {@link PartitionedWorkQueueProcessor} using the properties
+		 * of this builder.
+		 * @return a fresh processor
+		 */
+		@SuppressWarnings("unchecked")
+		public PartitionedWorkQueueProcessor<T> build() {
+			String name = this.name != null ? this.name : PartitionedWorkQueueProcessor.class.getSimpleName();
+			WorkQueueProcessor<T>[] workQueues = new WorkQueueProcessor[partitions];
+			for (int i = 0; i < partitions; i++) {
+				WorkQueueProcessor.Builder<T> builder = WorkQueueProcessor.<T>builder()
+						.bufferSize(bufferSize)
+						.waitStrategy(waitStrategy)
+						.producerWaitStrategy(producerWaitStrategy)
+						.share(share)
+						//a partition outlives its subscribers to hand its signals over
+						.autoCancel(false);
+				if (executor != null) {
+					builder.executor(executor);
+				}
+				else {
+					builder.name(name + "-" + i);
+				}
+				workQueues[i] = builder.build();
+			}
+			return new PartitionedWorkQueueProcessor<>(workQueues,
+					keyFunction,
+					onPartitionAssigned,
+					onPartitionReleased);
+		}
+	}
+
+	/**
+	 * Create a new {@link PartitionedWorkQueueProcessor} {@link Builder} with default
+	 * properties.
+	 * @param keyFunction the function extracting the routing key of a signal
+	 * @param <T> Type of dispatched signal
+	 * @return new PartitionedWorkQueueProcessor builder
+	 */
+	public final static <T> Builder<T> builder(Function<? super T, ?> keyFunction) {
+		return new Builder<>(keyFunction);
+	}
+
+	final WorkQueueProcessor<E>[]        workQueues;
+	final Function<? super E, ?>         keyFunction;
+	final PartitionInner<E>[]            owners;
+	final boolean[]                      terminated;
+	final List<PartitionSubscriber<E>>   members;
+	@Nullable
+	final IntConsumer                    onPartitionAssigned;
+	@Nullable
+	final IntConsumer                    onPartitionReleased;
+
+	int terminatedCount;
+
+	Subscription upstreamSubscription;
+
+	@SuppressWarnings("unchecked")
+	PartitionedWorkQueueProcessor(WorkQueueProcessor<E>[] workQueues,
+			Function<? super E, ?> keyFunction,
+			@Nullable IntConsumer onPartitionAssigned,
+			@Nullable IntConsumer onPartitionReleased) {
+		this.workQueues = workQueues;
+		this.keyFunction = keyFunction;
+		this.owners = new PartitionInner[workQueues.length];
+		this.terminated = new boolean[workQueues.length];
+		this.members = new ArrayList<>();
+		this.onPartitionAssigned = onPartitionAssigned;
+		this.onPartitionReleased = onPartitionReleased;
+	}
+
+	/**
+	 * Return the partition a signal with the given key is routed to.
+	 *
+	 * @param key the routing key, possibly null
+	 * @return the partition index
+	 */
+	public int partition(@Nullable Object key) {
+		if (key == null) {
+			return 0;
+		}
+		int h = key.hashCode();
+		//spread the high bits as HashMap does, since keys often differ in those only
+		return Math.floorMod(h ^ (h >>> 16), workQueues.length);
+	}
+
+	/**
+	 * Return the number of partitions.
+	 *
+	 * @return the number of partitions
+	 */
+	public int partitions() {
+		return workQueues.length;
+	}
+
+	@Override
+	public void subscribe(CoreSubscriber<? super E> actual) {
+		Objects.requireNonNull(actual, "subscribe");
+
+		PartitionSubscriber<E> member = new PartitionSubscriber<>(actual, this);
+		actual.onSubscribe(member);
+
+		boolean joined;
+		boolean done;
+		synchronized (this) {
+			done = terminatedCount == workQueues.length;
+			joined = !done && !member.cancelled && members.size() < workQueues.length;
+			if (joined) {
+				members.add(member);
+			}
+		}
+		if (done) {
+			Throwable e = getError();
+			if (e != null) {
+				member.error(e);
+			}
+			else {
+				member.complete();
+			}
+		}
+		else if (joined) {
+			rebalance();
+		}
+		else if (!member.cancelled) {
+			member.error(new IllegalStateException("All " + workQueues.length +
+					" partitions already have a subscriber"));
+		}
+	}
+
+	/**
+	 * Spread the partitions that did not terminate evenly over the subscribers, keeping
+	 * as many partitions as possible with their current subscriber. A partition moving
+	 * to another subscriber is first revoked from its current one, and only taken over
+	 * once the current subscriber is done with it, see {@link #release(PartitionInner)}.
+	 */
+	void rebalance() {
+		List<PartitionInner<E>> assigned = new ArrayList<>();
+		List<PartitionInner<E>> revoked = new ArrayList<>();
+		synchronized (this) {
+			int m = members.size();
+			int open = workQueues.length - terminatedCount;
+			int[] counts = new int[m];
+			int[] targets = new int[workQueues.length];
+			//keep the current owners within their share of the partitions
+			for (int p = 0; p < workQueues.length; p++) {
+				targets[p] = -1;
+				PartitionInner<E> owner = owners[p];
+				if (terminated[p] || owner == null || owner.revoked) {
+					continue;
+				}
+				int i = members.indexOf(owner.member);
+				if (i >= 0 && counts[i] < share(i, m, open)) {
+					counts[i]++;
+					targets[p] = i;
+				}
+			}
+			//then hand the other partitions to the subscribers below their share
+			for (int p = 0; p < workQueues.length; p++) {
+				if (terminated[p] || targets[p] >= 0) {
+					continue;
+				}
+				for (int i = 0; i < m; i++) {
+					if (counts[i] < share(i, m, open)) {
+						counts[i]++;
+						targets[p] = i;
+						break;
+					}
+				}
+				PartitionInner<E> owner = owners[p];
+				if (owner != null) {
+					if (!owner.revoked) {
+						owner.revoked = true;
+						revoked.add(owner);
+					}
+				}
+				else if (targets[p] >= 0) {
+					owner = new PartitionInner<>(members.get(targets[p]), this, p);
+					owners[p] = owner;
+					assigned.add(owner);
+				}
+			}
+		}
+		for (PartitionInner<E> owner : revoked) {
+			owner.revoke();
+		}
+		for (PartitionInner<E> owner : assigned) {
+			if (onPartitionAssigned != null) {
+				onPartitionAssigned.accept(owner.partition);
+			}
+			workQueues[owner.partition].subscribe(owner, owner);
+		}
+	}
+
+	static int share(int member, int members, int partitions) {
+		return partitions / members + (member < partitions % members ? 1 : 0);
+	}
+
+	/**
+	 * Free the partition of a subscriber that is done with it, then hand it to its
+	 * next subscriber.
+	 *
+	 * @param inner the partition subscriber
+	 */
+	void release(PartitionInner<E> inner) {
+		synchronized (this) {
+			if (owners[inner.partition] != inner) {
+				return;
+			}
+			owners[inner.partition] = null;
+		}
+		if (onPartitionReleased != null) {
+			onPartitionReleased.accept(inner.partition);
+		}
+		rebalance();
+	}
+
+	/**
+	 * Remove a subscriber that cancelled or terminated, its partitions moving to the
+	 * other subscribers.
+	 *
+	 * @param member the subscriber
+	 */
+	void leave(PartitionSubscriber<E> member) {
+		boolean removed;
+		synchronized (this) {
+			removed = members.remove(member);
+		}
+		if (removed) {
+			rebalance();
+		}
+	}
+
+	/**
+	 * Mark a partition as terminated, so that it is not assigned anymore, and terminate
+	 * the remaining subscribers once every partition terminated.
+	 *
+	 * @param partition the partition index
+	 */
+	void terminate(int partition) {
+		List<PartitionSubscriber<E>> done = null;
+		synchronized (this) {
+			if (terminated[partition]) {
+				return;
+			}
+			terminated[partition] = true;
+			if (++terminatedCount == workQueues.length) {
+				done = new ArrayList<>(members);
+				members.clear();
+			}
+		}
+		if (done != null) {
+			Throwable e = getError();
+			for (PartitionSubscriber<E> member : done) {
+				if (e != null) {
+					member.error(e);
+				}
+				else {
+					member.complete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Request more signals from the partitions of a subscriber having new demand.
+	 *
+	 * @param member the subscriber
+	 */
+	void replenish(PartitionSubscriber<E> member) {
+		List<PartitionInner<E>> inners = new ArrayList<>();
+		synchronized (this) {
+			for (PartitionInner<E> owner : owners) {
+				if (owner != null && owner.member == member) {
+					inners.add(owner);
+				}
+			}
+		}
+		for (PartitionInner<E> inner : inners) {
+			inner.replenish();
+		}
+	}
+
+	/**
+	 * Return true if every partition that did not terminate has its final subscriber,
+	 * rather than waiting for one or being handed over.
+	 *
+	 * @return true if no partition is being rebalanced
+	 */
+	synchronized boolean balanced() {
+		for (int p = 0; p < owners.length; p++) {
+			if (!terminated[p] && !members.isEmpty() &&
+					(owners[p] == null || owners[p].revoked)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void onSubscribe(Subscription s) {
+		if (Operators.validate(upstreamSubscription, s)) {
+			this.upstreamSubscription = s;
+			s.request(Long.MAX_VALUE);
+		}
+	}
+
+	@Override
+	public void onNext(E o) {
+		Objects.requireNonNull(o, "onNext");
+		workQueues[partition(keyFunction.apply(o))].onNext(o);
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		Objects.requireNonNull(t, "onError");
+		for (WorkQueueProcessor<E> workQueue : workQueues) {
+			workQueue.onError(t);
+		}
+	}
+
+	@Override
+	public void onComplete() {
+		for (WorkQueueProcessor<E> workQueue : workQueues) {
+			workQueue.onComplete();
+		}
+	}
+
+	/**
+	 * Shutdown every partition, see {@link EventLoopProcessor#shutdown()}.
+	 */
+	public void shutdown() {
+		for (WorkQueueProcessor<E> workQueue : workQueues) {
+			workQueue.shutdown();
+		}
+	}
+
+	/**
+	 * Return the number of parked elements in the emitter backlog of every partition.
+	 *
+	 * @return the number of parked elements in the emitter backlogs
+	 */
+	public long getPending() {
+		long pending = 0L;
+		for (WorkQueueProcessor<E> workQueue : workQueues) {
+			pending += workQueue.getPending();
+		}
+		return pending;
+	}
+
+	@Override
+	public synchronized long downstreamCount() {
+		return members.size();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		for (WorkQueueProcessor<E> workQueue : workQueues) {
+			if (!workQueue.isTerminated()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	@Nullable
+	public Throwable getError() {
+		for (WorkQueueProcessor<E> workQueue : workQueues) {
+			Throwable e = workQueue.getError();
+			if (e != null) {
+				return e;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int getBufferSize() {
+		return workQueues[0].getBufferSize();
+	}
+
+	@Override
+	public boolean isSerialized() {
+		return workQueues[0].isSerialized();
+	}
+
+	@Override
+	@Nullable
+	public Object scanUnsafe(Attr key) {
+		if (key == Attr.PARENT) return upstreamSubscription;
+
+		return super.scanUnsafe(key);
+	}
+
+	/**
+	 * A subscriber of the processor, receiving the signals of its partitions one at a
+	 * time and sharing its demand between them.
+	 */
+	static final class PartitionSubscriber<T> implements Subscription {
+
+		final CoreSubscriber<? super T>        actual;
+		final PartitionedWorkQueueProcessor<T> parent;
+
+		volatile long requested;
+		@SuppressWarnings("rawtypes")
+		static final AtomicLongFieldUpdater<PartitionSubscriber> REQUESTED =
+				AtomicLongFieldUpdater.newUpdater(PartitionSubscriber.class, "requested");
+
+		volatile boolean cancelled;
+
+		/**
+		 * True once terminated, guarded by this subscriber.
+		 */
+		boolean done;
+
+		PartitionSubscriber(CoreSubscriber<? super T> actual,
+				PartitionedWorkQueueProcessor<T> parent) {
+			this.actual = actual;
+			this.parent = parent;
+		}
+
+		/**
+		 * Take one unit of demand for a partition.
+		 *
+		 * @return true if there was demand
+		 */
+		boolean take() {
+			for (;;) {
+				long r = requested;
+				if (r == Long.MAX_VALUE) {
+					return true;
+				}
+				if (r == 0L) {
+					return false;
+				}
+				if (REQUESTED.compareAndSet(this, r, r - 1L)) {
+					return true;
+				}
+			}
+		}
+
+		synchronized void next(T t) {
+			if (!done) {
+				actual.onNext(t);
+			}
+		}
+
+		synchronized void error(Throwable t) {
+			if (!done) {
+				done = true;
+				actual.onError(t);
+			}
+		}
+
+		synchronized void complete() {
+			if (!done) {
+				done = true;
+				actual.onComplete();
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (Operators.validate(n)) {
+				Operators.addCap(REQUESTED, this, n);
+				parent.replenish(this);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			parent.leave(this);
+		}
+	}
+
+	/**
+	 * The subscriber of a partition on behalf of a {@link PartitionSubscriber},
+	 * requesting signals one at a time from the partition as long as its subscriber has
+	 * demand. It releases the partition once the partition's subscriber thread is done
+	 * with it.
+	 */
+	static final class PartitionInner<T> implements CoreSubscriber<T>, Runnable {
+
+		final PartitionSubscriber<T>           member;
+		final PartitionedWorkQueueProcessor<T> parent;
+		final int                              partition;
+
+		volatile Subscription s;
+
+		/**
+		 * True once the partition moves to another subscriber, guarded by the parent.
+		 */
+		volatile boolean revoked;
+
+		volatile boolean unbounded;
+
+		/**
+		 * 1 while a signal is requested from the partition and not delivered yet.
+		 */
+		volatile int outstanding;
+		@SuppressWarnings("rawtypes")
+		static final AtomicIntegerFieldUpdater<PartitionInner> OUTSTANDING =
+				AtomicIntegerFieldUpdater.newUpdater(PartitionInner.class, "outstanding");
+
+		PartitionInner(PartitionSubscriber<T> member,
+				PartitionedWorkQueueProcessor<T> parent,
+				int partition) {
+			this.member = member;
+			this.parent = parent;
+			this.partition = partition;
+		}
+
+		@Override
+		public Context currentContext() {
+			return member.actual.currentContext();
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			this.s = s;
+			if (revoked) {
+				s.cancel();
+			}
+			else {
+				replenish();
+			}
+		}
+
+		@Override
+		public void onNext(T t) {
+			member.next(t);
+			if (!unbounded) {
+				outstanding = 0;
+				replenish();
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			parent.terminate(partition);
+			member.error(t);
+			parent.leave(member);
+		}
+
+		@Override
+		public void onComplete() {
+			parent.terminate(partition);
+		}
+
+		/**
+		 * Request the next signal of the partition if the subscriber has demand and no
+		 * signal is requested already.
+		 */
+		void replenish() {
+			Subscription s = this.s;
+			if (s == null || revoked || unbounded) {
+				return;
+			}
+			while (OUTSTANDING.compareAndSet(this, 0, 1)) {
+				if (member.requested == Long.MAX_VALUE) {
+					unbounded = true;
+					s.request(Long.MAX_VALUE);
+					return;
+				}
+				if (member.take()) {
+					s.request(1L);
+					return;
+				}
+				outstanding = 0;
+				//demand added since then replenishes again, or is seen by the next loop
+				if (member.requested == 0L) {
+					return;
+				}
+			}
+		}
+
+		void revoke() {
+			Subscription s = this.s;
+			if (s != null) {
+				s.cancel();
+			}
+		}
+
+		/**
+		 * Run by the subscriber thread of the partition once it is done with this
+		 * subscriber: give back the demand of a signal requested but not delivered, then
+		 * release the partition.
+		 */
+		@Override
+		public void run() {
+			if (!unbounded && OUTSTANDING.compareAndSet(this, 1, 0)) {
+				Operators.addCap(PartitionSubscriber.REQUESTED, member, 1L);
+			}
+			parent.release(this);
+			parent.replenish(member);
+		}
+	}
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Operators;
+import reactor.util.annotation.Nullable;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+/**
+ * Base class for the publish-subscribe processors dispatching primitive values. Values
+ * are stored in a primitive array indexed by the sequences claimed on a
+ * {@link RingBufferProducer}, so that neither a {@code Slot} nor a boxed value is
+ * created per signal.
+ * <p>
+ * Each subscriber is assigned a unique thread and receives every value published after
+ * it subscribed, until a terminal signal or the subscriber disposal. There is no demand:
+ * a slow subscriber throttles the producers once the backlog has been fully booked.
+ *
+ * @param <C> the primitive consumer type
+ */
+public abstract class PrimitiveTopicProcessor<C> implements Disposable {
+
+	/**
+	 * Primitive topic processor builder that can be used to create new processors.
+	 * Instantiate it through the {@link LongTopicProcessor#builder()} or
+	 * {@link DoubleTopicProcessor#builder()} static methods.
+	 *
+	 * @param <P> the type of processor built
+	 */
+	public final static class Builder<P extends PrimitiveTopicProcessor<?>> {
+
+		final String     defaultName;
+		final Factory<P> factory;
+
+		String          name;
+		ExecutorService executor;
+		int             bufferSize;
+		WaitStrategy    waitStrategy;
+		WaitStrategy    producerWaitStrategy;
+		boolean         share;
+
+		Builder(String defaultName, Factory<P> factory) {
+			this.defaultName = defaultName;
+			this.factory = factory;
+			this.bufferSize = Queues.SMALL_BUFFER_SIZE;
+			this.share = false;
+		}
+
+		/**
+		 * Configures name for this builder. Default value is the simple name of the
+		 * processor class.
+		 * Name is set to default if the provided <code>name</code> is null.
+		 * @param name Use a new cached ExecutorService and assign this name to the created threads
+		 *             if {@link #executor(ExecutorService)} is not configured.
+		 * @return builder with provided name
+		 */
+		public Builder<P> name(@Nullable String name) {
+			if (executor != null)
+				throw new IllegalArgumentException("Executor service is configured, name will not be used.");
+			this.name = name;
+			return this;
+		}
+
+		/**
+		 * Configures buffer size for this builder. Default value is {@link Queues#SMALL_BUFFER_SIZE}.
+		 * @param bufferSize the internal buffer size to hold values, must be a power of 2.
+		 * @return builder with provided buffer size
+		 */
+		public Builder<P> bufferSize(int bufferSize) {
+			if (!Queues.isPowerOfTwo(bufferSize)) {
+				throw new IllegalArgumentException("bufferSize must be a power of 2 : " + bufferSize);
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Configures wait strategy for this builder. Default value is {@link WaitStrategy#phasedOffLiteLock(long, long, TimeUnit)}.
+		 * Wait strategy is set to default if the provided <code>waitStrategy</code> is null.
+		 * @param waitStrategy A RingBuffer WaitStrategy subscribers use to wait for new values.
+		 * @return builder with provided wait strategy
+		 */
+		public Builder<P> waitStrategy(@Nullable WaitStrategy waitStrategy) {
+			this.waitStrategy = waitStrategy;
+			return this;
+		}
+
+		/**
+		 * Configures the wait strategy publishers use while the ring buffer is full.
+		 * Default value is {@link WaitStrategy#parking(int) parking(0)}.
+		 * Producer wait strategy is set to default if the provided
+		 * <code>producerWaitStrategy</code> is null.
+		 * @param producerWaitStrategy A RingBuffer WaitStrategy to use on the publish side
+		 * @return builder with provided producer wait strategy
+		 */
+		public Builder<P> producerWaitStrategy(@Nullable WaitStrategy producerWaitStrategy) {
+			this.producerWaitStrategy = producerWaitStrategy;
+			return this;
+		}
+
+		/**
+		 * Configures an {@link ExecutorService} to execute as many event-loop consuming the
+		 * ringbuffer as subscribers. Name configured using {@link #name(String)} will be ignored
+		 * if executor is set.
+		 * @param executor A provided ExecutorService to manage threading infrastructure
+		 * @return builder with provided executor
+		 */
+		public Builder<P> executor(@Nullable ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Configures sharing state for this builder. A shared Processor authorizes
+		 * concurrent onNext calls and is suited for multi-threaded publisher that
+		 * will fan-in data.
+		 * @param share true to support concurrent onNext calls
+		 * @return builder with specified sharing
+		 */
+		public Builder<P> share(boolean share) {
+			this.share = share;
+			return this;
+		}
+
+		/**
+		 * Creates a new processor using the properties of this builder.
+		 * @return a fresh processor
+		 */
+		public P build() {
+			return factory.create(name != null ? name : defaultName,
+					executor,
+					bufferSize,
+					waitStrategy != null ? waitStrategy : WaitStrategy.phasedOffLiteLock(200, 100, TimeUnit.MILLISECONDS),
+					producerWaitStrategy != null ? producerWaitStrategy : WaitStrategy.parking(0),
+					share);
+		}
+	}
+
+	/**
+	 * Creates a primitive topic processor from the properties of a {@link Builder}.
+	 *
+	 * @param <P> the type of processor created
+	 */
+	interface Factory<P> {
+
+		P create(String name,
+				@Nullable ExecutorService executor,
+				int bufferSize,
+				WaitStrategy waitStrategy,
+				WaitStrategy producerWaitStrategy,
+				boolean share);
+	}
+
+	final String             name;
+	final ExecutorService    executor;
+	final RingBufferProducer sequencer;
+	final RingBuffer.Reader  barrier;
+	final int                mask;
+	final boolean            multiproducer;
+
+	volatile Throwable error;
+	volatile int       terminated;
+
+	@SuppressWarnings("rawtypes")
+	static final AtomicIntegerFieldUpdater<PrimitiveTopicProcessor> TERMINATED =
+			AtomicIntegerFieldUpdater.newUpdater(PrimitiveTopicProcessor.class, "terminated");
+
+	volatile int subscriberCount;
+
+	@SuppressWarnings("rawtypes")
+	static final AtomicIntegerFieldUpdater<PrimitiveTopicProcessor> SUBSCRIBER_COUNT =
+			AtomicIntegerFieldUpdater.newUpdater(PrimitiveTopicProcessor.class, "subscriberCount");
+
+	PrimitiveTopicProcessor(String name,
+			@Nullable ExecutorService executor,
+			int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			boolean multiproducer) {
+		if (!Queues.isPowerOfTwo(bufferSize)) {
+			throw new IllegalArgumentException("bufferSize must be a power of 2 : " + bufferSize);
+		}
+
+		this.name = name;
+		this.executor = executor != null ? executor :
+				Executors.newCachedThreadPool(new EventLoopProcessor.EventLoopFactory(name, true));
+		this.multiproducer = multiproducer;
+		this.mask = bufferSize - 1;
+		this.sequencer = RingBuffer.createSequencer(bufferSize,
+				waitStrategy,
+				producerWaitStrategy,
+				multiproducer,
+				false,
+				null);
+		this.barrier = sequencer.newBarrier();
+	}
+
+	/**
+	 * Deliver the value stored for the given sequence to the given consumer.
+	 *
+	 * @param consumer the consumer to signal
+	 * @param sequence the published sequence to read
+	 */
+	abstract void deliver(C consumer, long sequence);
+
+	/**
+	 * Subscribe a consumer to the values published from now on.
+	 *
+	 * @param consumer the consumer invoked with each value on a dedicated thread
+	 * @return a {@link Disposable} to stop the consumer
+	 */
+	public final Disposable subscribe(C consumer) {
+		return subscribe(consumer, null, null);
+	}
+
+	/**
+	 * Subscribe a consumer to the values published from now on, with error and
+	 * completion callbacks. An error thrown by the consumer is passed to the error
+	 * callback (or dropped if none is given) and stops the consumer.
+	 *
+	 * @param consumer the consumer invoked with each value on a dedicated thread
+	 * @param errorConsumer the consumer invoked on error signal, or null
+	 * @param completeConsumer the callback invoked on completion signal, or null
+	 * @return a {@link Disposable} to stop the consumer
+	 */
+	public final Disposable subscribe(C consumer,
+			@Nullable Consumer<? super Throwable> errorConsumer,
+			@Nullable Runnable completeConsumer) {
+		Objects.requireNonNull(consumer, "consumer");
+		PrimitiveInner<C> inner = new PrimitiveInner<>(this, consumer, errorConsumer, completeConsumer);
+
+		inner.sequence.set(sequencer.getCursor());
+		sequencer.addGatingSequence(inner.sequence);
+		SUBSCRIBER_COUNT.incrementAndGet(this);
+		try {
+			executor.execute(inner);
+		}
+		catch (RejectedExecutionException ree) {
+			inner.close();
+			if (terminated == 0) {
+				throw ree;
+			}
+			inner.terminate();
+		}
+		return inner;
+	}
+
+	/**
+	 * Signal that no more value will be published. Subscribers complete once they have
+	 * consumed the remaining values.
+	 */
+	public final void onComplete() {
+		if (TERMINATED.compareAndSet(this, 0, EventLoopProcessor.SHUTDOWN)) {
+			terminate();
+		}
+	}
+
+	/**
+	 * Signal that no more value will be published because of the given error.
+	 * Subscribers receive the error once they have consumed the remaining values.
+	 *
+	 * @param t the error to signal
+	 */
+	public final void onError(Throwable t) {
+		Objects.requireNonNull(t, "onError");
+		if (TERMINATED.compareAndSet(this, 0, EventLoopProcessor.SHUTDOWN)) {
+			error = t;
+			terminate();
+		}
+		else {
+			Operators.onErrorDropped(t, Context.empty());
+		}
+	}
+
+	/**
+	 * Stop every subscriber right away, dropping the values they have not consumed yet.
+	 */
+	@Override
+	public final void dispose() {
+		if (TERMINATED.compareAndSet(this, 0, EventLoopProcessor.FORCED_SHUTDOWN) ||
+				TERMINATED.compareAndSet(this, EventLoopProcessor.SHUTDOWN, EventLoopProcessor.FORCED_SHUTDOWN)) {
+			barrier.alert();
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public final boolean isDisposed() {
+		return terminated != 0;
+	}
+
+	/**
+	 * Return the number of subscribers currently consuming this processor.
+	 *
+	 * @return the number of subscribers
+	 */
+	public final int downstreamCount() {
+		return subscriberCount;
+	}
+
+	/**
+	 * Return the size of the backlog.
+	 *
+	 * @return the size of the backlog
+	 */
+	public final int getBufferSize() {
+		return mask + 1;
+	}
+
+	/**
+	 * Return the number of published values not consumed yet by the slowest subscriber.
+	 *
+	 * @return the number of pending values
+	 */
+	public final long getPending() {
+		return sequencer.getPending();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "{name='" + name + "'}";
+	}
+
+	final void terminate() {
+		barrier.signal();
+		sequencer.producerWaitStrategy.signalAllWhenBlocking();
+		executor.shutdown();
+	}
+
+	static final class PrimitiveInner<C> implements Runnable, Disposable {
+
+		final PrimitiveTopicProcessor<C>    processor;
+		final C                             consumer;
+		@Nullable
+		final Consumer<? super Throwable>   errorConsumer;
+		@Nullable
+		final Runnable                      completeConsumer;
+		final AtomicBoolean                 running  = new AtomicBoolean(true);
+		final RingBuffer.Sequence           sequence = RingBuffer.newSequence(RingBuffer.INITIAL_CURSOR_VALUE);
+
+		final Runnable waiter = new Runnable() {
+			@Override
+			public void run() {
+				if (!running.get() || (processor.terminated != 0 &&
+						sequence.getAsLong() >= processor.sequencer.getCursor())) {
+					WaitStrategy.alert();
+				}
+			}
+		};
+
+		PrimitiveInner(PrimitiveTopicProcessor<C> processor,
+				C consumer,
+				@Nullable Consumer<? super Throwable> errorConsumer,
+				@Nullable Runnable completeConsumer) {
+			this.processor = processor;
+			this.consumer = consumer;
+			this.errorConsumer = errorConsumer;
+			this.completeConsumer = completeConsumer;
+		}
+
+		@Override
+		public void run() {
+			long nextSequence = sequence.getAsLong() + 1L;
+			try {
+				for (; ; ) {
+					try {
+						final long availableSequence =
+								processor.barrier.waitFor(nextSequence, waiter);
+						for (; nextSequence <= availableSequence; nextSequence++) {
+							processor.deliver(consumer, nextSequence);
+						}
+						sequence.set(availableSequence);
+						processor.sequencer.producerWaitStrategy.signalAllWhenBlocking();
+					}
+					catch (Throwable t) {
+						if (!WaitStrategy.isAlert(t)) {
+							throw t;
+						}
+						if (running.get() && processor.terminated == EventLoopProcessor.SHUTDOWN) {
+							terminate();
+						}
+						return;
+					}
+				}
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread()
+				      .interrupt();
+			}
+			catch (Throwable t) {
+				Exceptions.throwIfJvmFatal(t);
+				if (errorConsumer != null) {
+					errorConsumer.accept(t);
+				}
+				else {
+					Operators.onErrorDropped(t, Context.empty());
+				}
+			}
+			finally {
+				close();
+			}
+		}
+
+		@Override
+		public void dispose() {
+			if (running.compareAndSet(true, false)) {
+				processor.barrier.signal();
+			}
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return !running.get();
+		}
+
+		void close() {
+			if (processor.sequencer.removeGatingSequence(sequence)) {
+				SUBSCRIBER_COUNT.decrementAndGet(processor);
+			}
+		}
+
+		void terminate() {
+			running.set(false);
+			Throwable e = processor.error;
+			if (e != null) {
+				if (errorConsumer != null) {
+					errorConsumer.accept(e);
+				}
+				else {
+					Operators.onErrorDropped(e, Context.empty());
+				}
+			}
+			else if (completeConsumer != null) {
+				completeConsumer.run();
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import reactor.extra.processor.EventLoopProcessor.Slot;
+import reactor.util.annotation.Nullable;
+
+/**
+ * The priority lanes of a {@link WorkQueueProcessor}: small multi-producer ring buffers
+ * the subscribers poll before the main ring buffer, the highest priority first. Each
+ * lane has a single work sequence subscribers claim signals from one at a time, which is
+ * also its only gating sequence as a signal is read before being claimed.
+ *
+ * @param <T> the signal type
+ */
+final class PriorityLanes<T> {
+
+	final RingBuffer<Slot<T>>[] rings;
+	final RingBuffer.Sequence[] workSequences;
+	final int                   starvationLimit;
+
+	@SuppressWarnings("unchecked")
+	PriorityLanes(int lanes,
+			int bufferSize,
+			int starvationLimit,
+			WaitStrategy producerWaitStrategy,
+			Runnable spinObserver) {
+		this.rings = new RingBuffer[lanes];
+		this.workSequences = new RingBuffer.Sequence[lanes];
+		this.starvationLimit = starvationLimit;
+		for (int i = 0; i < lanes; i++) {
+			rings[i] = RingBuffer.createMultiProducer(Slot::new, bufferSize,
+					WaitStrategy.liteBlocking(), producerWaitStrategy, spinObserver);
+			workSequences[i] = RingBuffer.newSequence(RingBuffer.INITIAL_CURSOR_VALUE);
+			rings[i].addGatingSequence(workSequences[i]);
+		}
+	}
+
+	/**
+	 * Publish a signal in the lane of the given priority, waiting for a free slot if it
+	 * is full.
+	 *
+	 * @param value the signal to publish
+	 * @param priority the priority, from 1 to the number of lanes
+	 */
+	void publish(T value, int priority) {
+		RingBuffer<Slot<T>> ring = rings[rings.length - priority];
+		long seqId = ring.next();
+		ring.get(seqId).value = value;
+		ring.publish(seqId);
+	}
+
+	/**
+	 * Return true if any lane has a published signal that has not been claimed yet.
+	 *
+	 * @return true if a lane has a signal to deliver
+	 */
+	boolean hasWork() {
+		for (int i = 0; i < rings.length; i++) {
+			if (available(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean available(int lane) {
+		long next = workSequences[lane].getAsLong() + 1L;
+		RingBuffer<Slot<T>> ring = rings[lane];
+		return next <= ring.getCursor() && ring.getSequencer().isAvailable(next);
+	}
+
+	/**
+	 * Claim the next signal of the highest priority lane having one.
+	 *
+	 * @return the claimed signal, or null if all the lanes are empty
+	 */
+	@Nullable
+	T poll() {
+		for (int i = 0; i < rings.length; i++) {
+			RingBuffer<Slot<T>> ring = rings[i];
+			RingBuffer.Sequence workSequence = workSequences[i];
+			for (;;) {
+				long current = workSequence.getAsLong();
+				long next = current + 1L;
+				if (next > ring.getCursor() || !ring.getSequencer().isAvailable(next)) {
+					break;
+				}
+				//the slot cannot be reused before the work sequence moves past it
+				T value = ring.get(next).value;
+				if (workSequence.compareAndSet(current, next)) {
+					return value;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+/**
+ * A listener of the time spent by signals in a {@link TopicProcessor} or a
+ * {@link WorkQueueProcessor}, configured with their builder {@code metrics} option.
+ * Processors without metrics do not read the clock at all.
+ * <p>
+ * Methods are invoked from the publishing and subscriber threads, concurrently and
+ * on the hot path: implementations must be thread-safe and cheap, such as
+ * {@link LatencyRecorder}.
+ */
+public interface ProcessorMetrics {
+
+	/**
+	 * Record the time a publisher waited for a free slot of the ring buffer, 0 or close
+	 * to it when the ring buffer was not full.
+	 *
+	 * @param nanos the wait time in nanoseconds
+	 */
+	void recordPublishWait(long nanos);
+
+	/**
+	 * Record the time a subscriber waited for new signals to be published.
+	 *
+	 * @param nanos the wait time in nanoseconds
+	 */
+	void recordConsumerWait(long nanos);
+
+	/**
+	 * Record the time between the publication of a signal and its delivery to a
+	 * subscriber, once per subscriber receiving it.
+	 *
+	 * @param nanos the residency time in nanoseconds
+	 */
+	void recordResidency(long nanos);
+}
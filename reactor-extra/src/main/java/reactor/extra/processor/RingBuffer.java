@@ -19,12 +19,13 @@ package reactor.extra.processor;
 import java.lang.reflect.Field;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
-import java.util.concurrent.locks.LockSupport;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import reactor.core.Exceptions;
 import reactor.util.Logger;
 import reactor.util.Loggers;
 import reactor.util.annotation.Nullable;
@@ -106,6 +107,11 @@ abstract class RingBuffer<E> implements LongSupplier {
 	 */
 	static final long     INITIAL_CURSOR_VALUE = -1L;
 
+	/**
+	 * Returned by {@code tryNext} when the requested slots are not available
+	 */
+	static final long     NO_CAPACITY          = -1L;
+
 	/**
 	 * Create a new multiple producer RingBuffer with the specified wait strategy.
      * <p>See {@code MultiProducerRingBuffer}.
@@ -113,16 +119,48 @@ abstract class RingBuffer<E> implements LongSupplier {
 	 * @param factory used to create the events within the ring buffer.
 	 * @param bufferSize number of elements to create within the ring buffer.
 	 * @param waitStrategy used to determine how to wait for new elements to become available.
+	 * @param producerWaitStrategy used to determine how producers wait for free slots when the ring buffer is full.
 	 * @param spinObserver the Runnable to call on a spin loop wait
 	 * @return the new RingBuffer instance
 	 */
 	static <E> RingBuffer<E> createMultiProducer(Supplier<E> factory,
 			int bufferSize,
-			WaitStrategy waitStrategy, Runnable spinObserver) {
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			Runnable spinObserver) {
 
 		if (hasUnsafe()) {
 			MultiProducerRingBuffer
-					sequencer = new MultiProducerRingBuffer(bufferSize, waitStrategy, spinObserver);
+					sequencer = new MultiProducerRingBuffer(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
+
+			return new UnsafeRingBuffer<>(factory, sequencer);
+		}
+		else {
+			throw new IllegalStateException("This JVM does not support sun.misc.Unsafe");
+		}
+	}
+
+	/**
+	 * Create a new multiple producer RingBuffer claiming sequences with an atomic
+	 * fetch-and-add rather than a compare-and-set loop.
+     * <p>See {@code StripedMultiProducerRingBuffer}.
+	 * @param <E> the element type
+	 * @param factory used to create the events within the ring buffer.
+	 * @param bufferSize number of elements to create within the ring buffer.
+	 * @param waitStrategy used to determine how to wait for new elements to become available.
+	 * @param producerWaitStrategy used to determine how producers wait for free slots when the ring buffer is full.
+	 * @param spinObserver the Runnable to call on a spin loop wait
+	 * @return the new RingBuffer instance
+	 */
+	static <E> RingBuffer<E> createStripedMultiProducer(Supplier<E> factory,
+			int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver) {
+
+		if (hasUnsafe()) {
+			StripedMultiProducerRingBuffer
+					sequencer = new StripedMultiProducerRingBuffer(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
 
 			return new UnsafeRingBuffer<>(factory, sequencer);
 		}
@@ -143,7 +181,7 @@ abstract class RingBuffer<E> implements LongSupplier {
 	static <E> RingBuffer<E> createSingleProducer(Supplier<E> factory,
 			int bufferSize,
 			WaitStrategy waitStrategy) {
-		return createSingleProducer(factory, bufferSize, waitStrategy, null);
+		return createSingleProducer(factory, bufferSize, waitStrategy, WaitStrategy.parking(0), null);
 	}
 
 	/**
@@ -153,15 +191,17 @@ abstract class RingBuffer<E> implements LongSupplier {
 	 * @param factory used to create the events within the ring buffer.
 	 * @param bufferSize number of elements to create within the ring buffer.
 	 * @param waitStrategy used to determine how to wait for new elements to become available.
+	 * @param producerWaitStrategy used to determine how the producer waits for free slots when the ring buffer is full.
 	 * @param spinObserver called each time the next claim is spinning and waiting for a slot
      * @return the new RingBuffer instance
 	 */
 	static <E> RingBuffer<E> createSingleProducer(Supplier<E> factory,
 			int bufferSize,
 			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
 			@Nullable Runnable spinObserver) {
 		SingleProducerSequencer
-				sequencer = new SingleProducerSequencer(bufferSize, waitStrategy, spinObserver);
+				sequencer = new SingleProducerSequencer(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
 
 		if (hasUnsafe() && Queues.isPowerOfTwo(bufferSize)) {
 			return new UnsafeRingBuffer<>(factory, sequencer);
@@ -171,6 +211,36 @@ abstract class RingBuffer<E> implements LongSupplier {
 		}
 	}
 
+	/**
+	 * Create a new sequencer without any backing element storage, for ring buffers
+	 * whose elements are kept in a primitive array indexed by the claimed sequences.
+	 *
+	 * @param bufferSize number of slots the sequencer will claim over, must be a power of 2.
+	 * @param waitStrategy used to determine how to wait for new elements to become available.
+	 * @param producerWaitStrategy used to determine how producers wait for free slots when the ring buffer is full.
+	 * @param multiproducer true if several threads can claim sequences concurrently
+	 * @param stripedClaims true to claim multiple producer sequences with a fetch-and-add
+	 * @param spinObserver called each time a claim is spinning and waiting for a slot
+	 * @return the new sequencer instance
+	 */
+	static RingBufferProducer createSequencer(int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			boolean multiproducer,
+			boolean stripedClaims,
+			@Nullable Runnable spinObserver) {
+		if (!multiproducer) {
+			return new SingleProducerSequencer(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
+		}
+		if (hasUnsafe()) {
+			if (stripedClaims) {
+				return new StripedMultiProducerRingBuffer(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
+			}
+			return new MultiProducerRingBuffer(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
+		}
+		throw new IllegalStateException("This JVM does not support sun.misc.Unsafe");
+	}
+
 	/**
 	 * Get the minimum sequence from an array of {@link Sequence}s.
 	 *
@@ -356,11 +426,28 @@ abstract class RingBuffer<E> implements LongSupplier {
 	 */
 	abstract long next(int n);
 
+	/**
+	 * Attempt to claim the next n sequences without waiting for free slots.
+	 * <p>
+     * See {@code RingBufferProducer.tryNext(int)}
+	 * @param n number of slots to claim
+	 * @return sequence number of the highest slot claimed or {@link #NO_CAPACITY} if
+	 * fewer than n slots are available
+	 */
+	abstract long tryNext(int n);
+
 	/**
 	 * Publish the specified sequence.  This action marks this particular message as being available to be read.
 	 * @param sequence the sequence to publish.
 	 */
 	abstract void publish(long sequence);
+
+	/**
+	 * Publish the specified sequences.  This action marks these particular messages as being available to be read.
+	 * @param lo the lowest sequence number to be published
+	 * @param hi the highest sequence number to be published
+	 */
+	abstract void publish(long lo, long hi);
 	/**
 	 * Remove the specified sequence from this ringBuffer.
 	 * @param sequence to be removed.
@@ -368,6 +455,13 @@ abstract class RingBuffer<E> implements LongSupplier {
 	 */
 	abstract boolean removeGatingSequence(Sequence sequence);
 
+	/**
+	 * Release the resources held by this ringBuffer that reading and writing it does not
+	 * need, such as an open file.
+	 */
+	void dispose() {
+	}
+
 	abstract RingBufferProducer getSequencer();/*
 
 
@@ -416,6 +510,15 @@ abstract class RingBuffer<E> implements LongSupplier {
 	     */
 	    boolean compareAndSet(long expectedValue, long newValue);
 
+	    /**
+	     * Atomically add the given increment to the sequence, which never fails
+	     * unlike a {@link #compareAndSet(long, long)} loop.
+	     *
+	     * @param increment The value to add.
+	     * @return the value before the addition.
+	     */
+	    long getAndAdd(long increment);
+
 	}
 
 	/**
@@ -473,7 +576,7 @@ abstract class RingBuffer<E> implements LongSupplier {
 	         */
 	    void alert() {
 	        alerted = true;
-	        waitStrategy.signalAllWhenBlocking();
+	        waitStrategy.wakeAll();
 	    }
 
 	    /**
@@ -638,9 +741,12 @@ abstract class RingBufferProducer {
 			SEQUENCE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(RingBufferProducer.class, RingBuffer.Sequence[].class,
 			"gatingSequences");
 
+	static final Runnable NO_SPIN_OBSERVER = () -> {};
+
 	final Runnable                                        spinObserver;
 	final int                                             bufferSize;
 	final WaitStrategy                                    waitStrategy;
+	final WaitStrategy                                    producerWaitStrategy;
 	final    RingBuffer.Sequence   cursor          = RingBuffer.newSequence(
 			RingBuffer.INITIAL_CURSOR_VALUE);
 	volatile RingBuffer.Sequence[] gatingSequences = new RingBuffer.Sequence[0];
@@ -650,12 +756,17 @@ abstract class RingBufferProducer {
 	 *
 	 * @param bufferSize The total number of entries, must be a positive power of 2.
 	 * @param waitStrategy The {@link WaitStrategy} to use.
+	 * @param producerWaitStrategy The {@link WaitStrategy} producers use to wait for free slots.
 	 * @param spinObserver an iteration observer
 	 */
-	RingBufferProducer(int bufferSize, WaitStrategy waitStrategy, @Nullable Runnable spinObserver) {
-		this.spinObserver = spinObserver;
+	RingBufferProducer(int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver) {
+		this.spinObserver = spinObserver != null ? spinObserver : NO_SPIN_OBSERVER;
 		this.bufferSize = bufferSize;
 		this.waitStrategy = waitStrategy;
+		this.producerWaitStrategy = producerWaitStrategy;
 	}
 
 	/**
@@ -693,7 +804,27 @@ abstract class RingBufferProducer {
 	 * @return <tt>true</tt> if this sequence was found, <tt>false</tt> otherwise.
 	 */
 	boolean removeGatingSequence(RingBuffer.Sequence sequence) {
-		return RingBuffer.removeSequence(this, SEQUENCE_UPDATER, sequence);
+		boolean removed = RingBuffer.removeSequence(this, SEQUENCE_UPDATER, sequence);
+		producerWaitStrategy.signalAllWhenBlocking();
+		return removed;
+	}
+
+	/**
+	 * Wait with the producer {@link WaitStrategy} until the given minimum gating sequence
+	 * reaches the wrap point of a claim.
+	 *
+	 * @param wrapPoint the sequence the minimum gating sequence must reach
+	 * @param minimumGatingSequence the minimum gating sequence to observe
+	 * @return the last observed minimum gating sequence
+	 */
+	final long waitForCapacity(long wrapPoint, LongSupplier minimumGatingSequence) {
+		try {
+			return producerWaitStrategy.waitFor(wrapPoint, minimumGatingSequence, spinObserver);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw Exceptions.propagate(ie);
+		}
 	}
 
 	/**
@@ -763,6 +894,16 @@ abstract class RingBufferProducer {
 	 */
 	abstract long next(int n);
 
+	/**
+	 * Attempt to claim the next n events in sequence for publishing without waiting.
+	 * Unlike {@link #next(int)} this never waits for the gating sequences to free slots.
+	 *
+	 * @param n the number of sequences to claim
+	 * @return the highest claimed sequence value or {@link RingBuffer#NO_CAPACITY} if
+	 * fewer than n slots are available
+	 */
+	abstract long tryNext(int n);
+
 	/**
 	 * Publishes a sequence. Call when the event has been filled.
 	 *
@@ -770,6 +911,22 @@ abstract class RingBufferProducer {
 	 */
 	abstract void publish(long sequence);
 
+	/**
+	 * Batch publish sequences.  Called when all of the events have been filled.
+	 *
+	 * @param lo first sequence number to publish
+	 * @param hi last sequence number to publish
+	 */
+	abstract void publish(long lo, long hi);
+
+	/**
+	 * Confirms if a sequence has been published and the event is available for use.
+	 *
+	 * @param sequence of the buffer to check
+	 * @return true if the sequence is available for use, false if not
+	 */
+	abstract boolean isAvailable(long sequence);
+
 	/**
 	 *
 	 * @return the gating sequences array
@@ -782,17 +939,23 @@ abstract class RingBufferProducer {
 abstract class SingleProducerSequencerPad extends RingBufferProducer
 {
 	protected long p1, p2, p3, p4, p5, p6, p7;
-	SingleProducerSequencerPad(int bufferSize, WaitStrategy waitStrategy, @Nullable Runnable spinObserver)
+	SingleProducerSequencerPad(int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver)
 	{
-		super(bufferSize, waitStrategy, spinObserver);
+		super(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
 	}
 }
 
 abstract class SingleProducerSequencerFields extends SingleProducerSequencerPad
 {
-	SingleProducerSequencerFields(int bufferSize, WaitStrategy waitStrategy, @Nullable Runnable spinObserver)
+	SingleProducerSequencerFields(int bufferSize,
+			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver)
 	{
-		super(bufferSize, waitStrategy, spinObserver);
+		super(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
 	}
 
 	/** Set to -1 as sequence starting point */
@@ -816,12 +979,19 @@ final class SingleProducerSequencer extends SingleProducerSequencerFields {
 	 *
 	 * @param bufferSize the size of the buffer that this will sequence over.
 	 * @param waitStrategy for those waiting on sequences.
+	 * @param producerWaitStrategy for the producer waiting on free slots.
 	 * @param spinObserver the runnable to call on a spin-wait
 	 */
-	SingleProducerSequencer(int bufferSize, final WaitStrategy waitStrategy, @Nullable Runnable spinObserver) {
-		super(bufferSize, waitStrategy, spinObserver);
+	SingleProducerSequencer(int bufferSize,
+			final WaitStrategy waitStrategy,
+			final WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver) {
+		super(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
 	}
 
+	final LongSupplier minimumGatingSequence =
+			() -> RingBuffer.getMinimumSequence(gatingSequences, nextValue);
+
 	/**
 	 * See {@code RingBufferProducer.next()}.
 	 */
@@ -846,10 +1016,7 @@ final class SingleProducerSequencer extends SingleProducerSequencerFields {
 			long minSequence;
 			while (wrapPoint > (minSequence = RingBuffer.getMinimumSequence(gatingSequences, nextValue)))
 			{
-				if(spinObserver != null) {
-					spinObserver.run();
-				}
-				LockSupport.parkNanos(1L); // TODO: Use waitStrategy to spin?
+				waitForCapacity(wrapPoint, minimumGatingSequence);
 			}
 
 			this.cachedValue = minSequence;
@@ -860,6 +1027,33 @@ final class SingleProducerSequencer extends SingleProducerSequencerFields {
 		return nextSequence;
 	}
 
+	/**
+	 * See {@code RingBufferProducer.tryNext(int)}.
+	 */
+	@Override
+	long tryNext(int n) {
+		long nextValue = this.nextValue;
+
+		long nextSequence = nextValue + n;
+		long wrapPoint = nextSequence - bufferSize;
+		long cachedGatingSequence = this.cachedValue;
+
+		if (wrapPoint > cachedGatingSequence || cachedGatingSequence > nextValue)
+		{
+			long minSequence = RingBuffer.getMinimumSequence(gatingSequences, nextValue);
+			this.cachedValue = minSequence;
+
+			if (wrapPoint > minSequence)
+			{
+				return RingBuffer.NO_CAPACITY;
+			}
+		}
+
+		this.nextValue = nextSequence;
+
+		return nextSequence;
+	}
+
 	/**
 	 * See {@code RingBufferProducer.producerCapacity()}.
 	 */
@@ -881,6 +1075,22 @@ final class SingleProducerSequencer extends SingleProducerSequencerFields {
 		waitStrategy.signalAllWhenBlocking();
 	}
 
+	/**
+	 * See {@code RingBufferProducer.publish(long, long)}.
+	 */
+	@Override
+	void publish(long lo, long hi) {
+		publish(hi);
+	}
+
+	/**
+	 * See {@code RingBufferProducer.isAvailable(long)}.
+	 */
+	@Override
+	boolean isAvailable(long sequence) {
+		return sequence <= cursor.getAsLong();
+	}
+
 	@Override
 	long getHighestPublishedSequence(long lowerBound, long availableSequence) {
 		return availableSequence;
@@ -958,6 +1168,12 @@ final class NotFunRingBuffer<E> extends NotFunRingBufferFields<E>
 		return sequenceProducer.next(n);
 	}
 
+	@Override
+	long tryNext(int n)
+	{
+		return sequenceProducer.tryNext(n);
+	}
+
 	@Override
 	void addGatingSequence(Sequence gatingSequence)
 	{
@@ -1006,6 +1222,12 @@ final class NotFunRingBuffer<E> extends NotFunRingBufferFields<E>
 		sequenceProducer.publish(sequence);
 	}
 
+	@Override
+	void publish(long lo, long hi)
+	{
+		sequenceProducer.publish(lo, hi);
+	}
+
 	@Override
 	int getPending() {
 		return (int)sequenceProducer.getPending();
@@ -1051,6 +1273,12 @@ final class AtomicSequence extends RhsPadding
 	{
 		return UPDATER.compareAndSet(this, expectedValue, newValue);
 	}
+
+	@Override
+	public long getAndAdd(final long increment)
+	{
+		return UPDATER.getAndAdd(this, increment);
+	}
 }
 
 abstract class RingBufferPad<E> extends RingBuffer<E>
@@ -1149,6 +1377,12 @@ final class UnsafeRingBuffer<E> extends RingBufferFields<E>
 		return sequenceProducer.next(n);
 	}
 
+	@Override
+	long tryNext(int n)
+	{
+		return sequenceProducer.tryNext(n);
+	}
+
 	@Override
 	void addGatingSequence(Sequence gatingSequence)
 	{
@@ -1197,6 +1431,12 @@ final class UnsafeRingBuffer<E> extends RingBufferFields<E>
 		sequenceProducer.publish(sequence);
 	}
 
+	@Override
+	void publish(long lo, long hi)
+	{
+		sequenceProducer.publish(lo, hi);
+	}
+
 	@Override
 	int getPending() {
 		return (int)sequenceProducer.getPending();
@@ -1280,6 +1520,12 @@ final class UnsafeSequence extends RhsPadding
 		return UNSAFE.compareAndSwapLong(this, VALUE_OFFSET, expectedValue, newValue);
 	}
 
+	@Override
+	public long getAndAdd(final long increment)
+	{
+		return UNSAFE.getAndAddLong(this, VALUE_OFFSET, increment);
+	}
+
 }
 
 /**
@@ -1291,7 +1537,7 @@ final class UnsafeSequence extends RhsPadding
  * to {@code RingBufferProducer.next()}, to determine the highest available sequence that can be read, then
  * {@code RingBufferProducer.getHighestPublishedSequence(long, long)} should be used.
  */
-final class MultiProducerRingBuffer extends RingBufferProducer
+class MultiProducerRingBuffer extends RingBufferProducer
 {
 	private static final Unsafe UNSAFE = RingBuffer.getUnsafe();
 	private static final long   BASE   = UNSAFE.arrayBaseOffset(int[].class);
@@ -1300,6 +1546,9 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 	private final RingBuffer.Sequence gatingSequenceCache = new UnsafeSequence(
 			RingBuffer.INITIAL_CURSOR_VALUE);
 
+	final LongSupplier minimumGatingSequence =
+			() -> RingBuffer.getMinimumSequence(gatingSequences, cursor.getAsLong());
+
 	// availableBuffer tracks the state of each ringbuffer slot
 	// see below for more details on the approach
 	private final int[] availableBuffer;
@@ -1311,9 +1560,14 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 	 *
 	 * @param bufferSize the size of the buffer that this will sequence over.
 	 * @param waitStrategy for those waiting on sequences.
+	 * @param producerWaitStrategy for producers waiting on free slots.
+	 * @param spinObserver the runnable to call on a spin-wait
 	 */
-	MultiProducerRingBuffer(int bufferSize, final WaitStrategy waitStrategy, Runnable spinObserver) {
-		super(bufferSize, waitStrategy, spinObserver);
+	MultiProducerRingBuffer(int bufferSize,
+			final WaitStrategy waitStrategy,
+			final WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver) {
+		super(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
 		availableBuffer = new int[bufferSize];
 		indexMask = bufferSize - 1;
 		indexShift = RingBuffer.log2(bufferSize);
@@ -1352,10 +1606,7 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 
 				if (wrapPoint > gatingSequence)
 				{
-					if(spinObserver != null) {
-						spinObserver.run();
-					}
-					LockSupport.parkNanos(1); // TODO, should we spin based on the wait strategy?
+					waitForCapacity(wrapPoint, minimumGatingSequence);
 					continue;
 				}
 
@@ -1371,6 +1622,49 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 		return next;
 	}
 
+	/**
+	 * See {@code RingBufferProducer.tryNext(int)}.
+	 */
+	@Override
+	long tryNext(int n)
+	{
+		long current;
+		long next;
+
+		do
+		{
+			current = cursor.getAsLong();
+			next = current + n;
+
+			if (!hasAvailableCapacity(n, current))
+			{
+				return RingBuffer.NO_CAPACITY;
+			}
+		}
+		while (!cursor.compareAndSet(current, next));
+
+		return next;
+	}
+
+	private boolean hasAvailableCapacity(int requiredCapacity, long cursorValue)
+	{
+		long wrapPoint = (cursorValue + requiredCapacity) - bufferSize;
+		long cachedGatingSequence = gatingSequenceCache.getAsLong();
+
+		if (wrapPoint > cachedGatingSequence || cachedGatingSequence > cursorValue)
+		{
+			long minSequence = RingBuffer.getMinimumSequence(gatingSequences, cursorValue);
+			gatingSequenceCache.set(minSequence);
+
+			if (wrapPoint > minSequence)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	/**
 	 * See {@code RingBufferProducer.producerCapacity()}.
 	 */
@@ -1402,6 +1696,19 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 		waitStrategy.signalAllWhenBlocking();
 	}
 
+	/**
+	 * See {@code RingBufferProducer.publish(long, long)}.
+	 */
+	@Override
+	void publish(final long lo, final long hi)
+	{
+		for (long l = lo; l <= hi; l++)
+		{
+			setAvailable(l);
+		}
+		waitStrategy.signalAllWhenBlocking();
+	}
+
 	/**
 	 * The below methods work on the availableBuffer flag.
 	 *
@@ -1435,6 +1742,7 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 	/**
 	 * See {@code RingBufferProducer.isAvailable(long)}
 	 */
+	@Override
 	boolean isAvailable(long sequence)
 	{
 		int index = calculateIndex(sequence);
@@ -1466,4 +1774,87 @@ final class MultiProducerRingBuffer extends RingBufferProducer
 	{
 		return ((int) sequence) & indexMask;
 	}
-}
\ No newline at end of file
+}
+
+/**
+ * <p>Coordinator for claiming sequences across multiple publisher threads, like
+ * {@link MultiProducerRingBuffer}, but suited to a high number of contending publishers.</p>
+ *
+ * <p>Sequences are claimed with a single atomic fetch-and-add on the cursor, which never
+ * fails and never retries, instead of a compare-and-set loop whose failure rate grows
+ * with the number of publishers. The capacity check happens after the claim: a
+ * publisher that claimed past the wrap point waits for the gating sequences to reach it
+ * before filling its slot. The cached minimum gating sequence is striped by publisher
+ * thread so that publishers do not all write the same cache line.</p>
+ *
+ * <p>As a consequence the cursor may run ahead of the free capacity, and a claimed
+ * sequence can no longer be given back: a publisher interrupted or alerted while waiting
+ * for capacity leaves an unpublished sequence that stalls the readers. {@link #tryNext(int)}
+ * still checks the capacity before claiming.</p>
+ */
+final class StripedMultiProducerRingBuffer extends MultiProducerRingBuffer
+{
+	//distance between two stripes of the cache, in longs, to keep them on separate cache lines
+	private static final int STRIPE_PADDING = 16;
+
+	private static final int MAX_STRIPES = 64;
+
+	private final AtomicLongArray gatingSequenceCaches;
+	private final int             stripeMask;
+
+	/**
+	 * Construct a Sequencer with the selected wait strategy and buffer size.
+	 *
+	 * @param bufferSize the size of the buffer that this will sequence over.
+	 * @param waitStrategy for those waiting on sequences.
+	 * @param producerWaitStrategy for producers waiting on free slots.
+	 * @param spinObserver the runnable to call on a spin-wait
+	 */
+	StripedMultiProducerRingBuffer(int bufferSize,
+			final WaitStrategy waitStrategy,
+			final WaitStrategy producerWaitStrategy,
+			@Nullable Runnable spinObserver) {
+		super(bufferSize, waitStrategy, producerWaitStrategy, spinObserver);
+		int stripes = Math.min(MAX_STRIPES, Queues.ceilingNextPowerOfTwo(Runtime.getRuntime().availableProcessors()));
+		stripeMask = stripes - 1;
+		gatingSequenceCaches = new AtomicLongArray(stripes * STRIPE_PADDING);
+		for (int i = 0; i < stripes; i++) {
+			gatingSequenceCaches.lazySet(i * STRIPE_PADDING, RingBuffer.INITIAL_CURSOR_VALUE);
+		}
+	}
+
+	/**
+	 * See {@code RingBufferProducer.next(int)}.
+	 */
+	@Override
+	long next(int n)
+	{
+		long next = cursor.getAndAdd(n) + n;
+		long wrapPoint = next - bufferSize;
+		int stripe = ((int) Thread.currentThread().getId() & stripeMask) * STRIPE_PADDING;
+
+		if (wrapPoint > gatingSequenceCaches.get(stripe))
+		{
+			long gatingSequence = RingBuffer.getMinimumSequence(gatingSequences, next - n);
+
+			while (wrapPoint > gatingSequence)
+			{
+				gatingSequence = waitForCapacity(wrapPoint, minimumGatingSequence);
+			}
+
+			gatingSequenceCaches.lazySet(stripe, gatingSequence);
+		}
+
+		return next;
+	}
+
+	/**
+	 * See {@code RingBufferProducer.producerCapacity()}.
+	 */
+	@Override
+	long getPending()
+	{
+		//the cursor can be ahead of the free capacity when claims are waiting for it
+		return Math.min(super.getPending(), bufferSize);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import reactor.core.Scannable;
+import reactor.util.annotation.Nullable;
+
+/**
+ * An immutable view of the progress of a single subscriber of a {@link TopicProcessor}
+ * or a {@link WorkQueueProcessor}, taken with {@code subscriberSnapshots()} or
+ * periodically with {@code subscriberMetrics(Duration)}. The same values can be read
+ * by scanning the processor {@code inners()}.
+ */
+public final class SubscriberSnapshot {
+
+	/**
+	 * The {@link Scannable} attribute of a processor subscriber returning the time, in
+	 * milliseconds since the epoch, it last moved its sequence forward or subscribed.
+	 */
+	public static final Scannable.Attr<Long> LAST_PROGRESS = new Scannable.Attr<Long>(null) {};
+
+	/**
+	 * The {@link Scannable} attribute of a processor subscriber returning how many times
+	 * its wait strategy spun, or woke up, while it waited for signals or demand.
+	 */
+	public static final Scannable.Attr<Long> SPINS = new Scannable.Attr<Long>(null) {};
+
+	/**
+	 * Take a snapshot of a processor subscriber by scanning it.
+	 *
+	 * @param inner the processor subscriber
+	 * @return a snapshot of the subscriber progress
+	 */
+	static SubscriberSnapshot of(Scannable inner) {
+		Long lag = inner.scan(Scannable.Attr.LARGE_BUFFERED);
+		Long lastProgress = inner.scan(LAST_PROGRESS);
+		Long spins = inner.scan(SPINS);
+		return new SubscriberSnapshot(inner.scanUnsafe(Scannable.Attr.ACTUAL),
+				lag != null ? lag : 0L,
+				inner.scanOrDefault(Scannable.Attr.REQUESTED_FROM_DOWNSTREAM, 0L),
+				lastProgress != null ? lastProgress : 0L,
+				spins != null ? spins : 0L);
+	}
+
+	@Nullable
+	final Object subscriber;
+	final long   lag;
+	final long   requested;
+	final long   lastProgress;
+	final long   spins;
+
+	SubscriberSnapshot(@Nullable Object subscriber, long lag, long requested, long lastProgress, long spins) {
+		this.subscriber = subscriber;
+		this.lag = lag;
+		this.requested = requested;
+		this.lastProgress = lastProgress;
+		this.spins = spins;
+	}
+
+	/**
+	 * Return the actual subscriber.
+	 *
+	 * @return the actual subscriber
+	 */
+	@Nullable
+	public Object subscriber() {
+		return subscriber;
+	}
+
+	/**
+	 * Return the number of published signals the subscriber has not consumed yet, the
+	 * highest lag being the one holding back the producers.
+	 *
+	 * @return the subscriber lag
+	 */
+	public long lag() {
+		return lag;
+	}
+
+	/**
+	 * Return the pending demand of the subscriber, {@link Long#MAX_VALUE} if unbounded.
+	 *
+	 * @return the pending demand
+	 */
+	public long requested() {
+		return requested;
+	}
+
+	/**
+	 * Return the time, in milliseconds since the epoch, the subscriber last moved its
+	 * sequence forward or subscribed.
+	 *
+	 * @return the time of the last progress
+	 */
+	public long lastProgress() {
+		return lastProgress;
+	}
+
+	/**
+	 * Return how many times the subscriber wait strategy spun, or woke up, while it
+	 * waited for signals or demand.
+	 *
+	 * @return the spin count
+	 */
+	public long spins() {
+		return spins;
+	}
+
+	@Override
+	public String toString() {
+		return "SubscriberSnapshot{subscriber=" + subscriber +
+				", lag=" + lag +
+				", requested=" + requested +
+				", lastProgress=" + lastProgress +
+				", spins=" + spins + "}";
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * The affinity policy of a processor: each thread starting to run one of its
+ * subscribers is pinned to the next CPU of the configured set, round-robin, and gets its
+ * previous affinity back once the subscriber terminates.
+ */
+final class ThreadAffinity {
+
+	static final Runnable NO_RESTORE = () -> { };
+
+	final AffinityProvider provider;
+	final int[]            cpus;
+	final AtomicInteger    next = new AtomicInteger();
+
+	ThreadAffinity(AffinityProvider provider, int[] cpus) {
+		if (cpus.length == 0) {
+			throw new IllegalArgumentException("at least one cpu must be provided");
+		}
+		for (int cpu : cpus) {
+			if (cpu < 0) {
+				throw new IllegalArgumentException("cpus must be positive, was: " + cpu);
+			}
+		}
+		this.provider = provider;
+		this.cpus = cpus.clone();
+	}
+
+	/**
+	 * Pin the current thread to the next CPU of the set.
+	 *
+	 * @return a task restoring the previous affinity of the thread
+	 */
+	Runnable pinCurrentThread() {
+		BitSet previous = provider.currentAffinity();
+		BitSet cpu = new BitSet();
+		cpu.set(cpus[Math.floorMod(next.getAndIncrement(), cpus.length)]);
+		if (!provider.pin(cpu)) {
+			log.debug("Could not pin thread " + Thread.currentThread().getName() + " to cpu " + cpu);
+			return NO_RESTORE;
+		}
+		if (previous == null) {
+			return NO_RESTORE;
+		}
+		return () -> provider.pin(previous);
+	}
+
+	static final Logger log = Loggers.getLogger(ThreadAffinity.class);
+
+	static final class Noop implements AffinityProvider {
+
+		static final Noop INSTANCE = new Noop();
+
+		@Override
+		@Nullable
+		public BitSet currentAffinity() {
+			return null;
+		}
+
+		@Override
+		public boolean pin(BitSet cpus) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the affinity of the current thread from {@code /proc/thread-self/status} and
+	 * changes it with {@code taskset}, as the JDK has no API for it.
+	 */
+	static final class Linux implements AffinityProvider {
+
+		static final Linux INSTANCE = new Linux();
+
+		static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+
+		static final String[] TASKSET_PATHS = {"/usr/bin/taskset", "/bin/taskset"};
+
+		static final File DEV_NULL = new File("/dev/null");
+
+		@Nullable
+		static final String TASKSET = taskset();
+
+		@Nullable
+		static String taskset() {
+			if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+				return null;
+			}
+			for (String path : TASKSET_PATHS) {
+				if (Files.isExecutable(Paths.get(path))) {
+					return path;
+				}
+			}
+			return null;
+		}
+
+		static boolean isSupported() {
+			return TASKSET != null && Files.isReadable(THREAD_SELF.resolve("status"));
+		}
+
+		@Override
+		@Nullable
+		public BitSet currentAffinity() {
+			try {
+				List<String> lines = Files.readAllLines(THREAD_SELF.resolve("status"), StandardCharsets.US_ASCII);
+				for (String line : lines) {
+					if (line.startsWith("Cpus_allowed_list:")) {
+						return parseList(line.substring(line.indexOf(':') + 1).trim());
+					}
+				}
+			}
+			catch (IOException | RuntimeException e) {
+				log.debug("Could not read the affinity of thread " + Thread.currentThread().getName(), e);
+			}
+			return null;
+		}
+
+		@Override
+		public boolean pin(BitSet cpus) {
+			String taskset = TASKSET;
+			if (taskset == null || cpus.isEmpty()) {
+				return false;
+			}
+			try {
+				//resolves to <pid>/task/<tid>
+				Path task = Files.readSymbolicLink(THREAD_SELF);
+				String tid = task.getFileName().toString();
+				Process process = new ProcessBuilder(taskset, "-p", "-c", toList(cpus), tid)
+						.redirectErrorStream(true)
+						.redirectOutput(ProcessBuilder.Redirect.to(DEV_NULL))
+						.start();
+				return process.waitFor() == 0;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			catch (IOException | RuntimeException e) {
+				log.debug("Could not pin thread " + Thread.currentThread().getName(), e);
+				return false;
+			}
+		}
+
+		/**
+		 * Parse a CPU list such as {@code 0-3,8,10-11}.
+		 *
+		 * @param list the CPU list
+		 * @return the CPUs of the list
+		 */
+		static BitSet parseList(String list) {
+			BitSet cpus = new BitSet();
+			for (String range : list.split(",")) {
+				if (range.isEmpty()) {
+					continue;
+				}
+				int dash = range.indexOf('-');
+				if (dash < 0) {
+					cpus.set(Integer.parseInt(range.trim()));
+				}
+				else {
+					cpus.set(Integer.parseInt(range.substring(0, dash).trim()),
+							Integer.parseInt(range.substring(dash + 1).trim()) + 1);
+				}
+			}
+			return cpus;
+		}
+
+		/**
+		 * Format CPUs as a list of single CPUs, such as {@code 0,1,2,3}.
+		 *
+		 * @param cpus the CPUs
+		 * @return the CPU list
+		 */
+		static String toList(BitSet cpus) {
+			StringBuilder list = new StringBuilder();
+			for (int cpu = cpus.nextSetBit(0); cpu >= 0; cpu = cpus.nextSetBit(cpu + 1)) {
+				if (list.length() > 0) {
+					list.append(',');
+				}
+				list.append(cpu);
+			}
+			return list.toString();
+		}
+	}
+}
@@ -16,22 +16,32 @@
 
 package reactor.extra.processor;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
 import reactor.core.Exceptions;
 import reactor.core.Scannable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.annotation.Nullable;
 import reactor.util.concurrent.Queues;
 
@@ -71,6 +81,26 @@ import reactor.util.concurrent.Queues;
  */
 public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 
+	/**
+	 * What to do with a subscriber that stalled the producers of a full ring buffer for
+	 * longer than the configured stall timeout.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Evict the subscriber, which stops gating the producers right away and is
+		 * terminated with an overflow error once it returns from its current signal.
+		 */
+		EVICT,
+
+		/**
+		 * Drop the signals the subscriber has not consumed yet: it stops gating the
+		 * producers right away and resumes from the most recently published signal once
+		 * it returns from its current signal.
+		 */
+		DROP_OLDEST
+	}
+
 	/**
 	 * {@link TopicProcessor} builder that can be used to create new
 	 * processors. Instantiate it through the {@link TopicProcessor#builder()} static
@@ -87,9 +117,22 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 		ExecutorService requestTaskExecutor;
 		int bufferSize;
 		WaitStrategy waitStrategy;
+		WaitStrategy producerWaitStrategy;
+		MappedRingBuffer.Backlog<T> backlog;
 		boolean share;
+		boolean stripedClaims;
 		boolean autoCancel;
 		Supplier<T> signalSupplier;
+		int gatingFanOut;
+		int requestHighTide;
+		int requestLowTide;
+		ProcessorMetrics metrics;
+		ThreadAffinity affinity;
+		boolean virtualThreads;
+		OverflowPolicy overflowPolicy;
+		long stallTimeoutMillis;
+		int history;
+		Function<? super T, ?> conflateKey;
 
 		Builder() {
 			this.bufferSize = Queues.SMALL_BUFFER_SIZE;
@@ -140,6 +183,24 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 			return this;
 		}
 
+		/**
+		 * Configures the wait strategy publishers use while the ring buffer is full.
+		 * Default value is {@link WaitStrategy#parking(int) parking(0)}, which parks for
+		 * the minimum period between each capacity check. Use
+		 * {@link WaitStrategy#busySpin()} or {@link WaitStrategy#yielding()} to favor
+		 * latency, {@link WaitStrategy#parkingBackoff(long, TimeUnit)} to back off from
+		 * the scheduler on long stalls, or {@link WaitStrategy#liteBlocking()} to block
+		 * until a subscriber frees a slot.
+		 * Producer wait strategy is set to default if the provided
+		 * <code>producerWaitStrategy</code> is null.
+		 * @param producerWaitStrategy A RingBuffer WaitStrategy to use on the publish side
+		 * @return builder with provided producer wait strategy
+		 */
+		public Builder<T> producerWaitStrategy(@Nullable WaitStrategy producerWaitStrategy) {
+			this.producerWaitStrategy = producerWaitStrategy;
+			return this;
+		}
+
 		/**
 		 * Configures auto-cancel for this builder. Default value is true.
 		 * @param autoCancel automatically cancel
@@ -174,6 +235,27 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 			return this;
 		}
 
+		/**
+		 * Configures the subscribers and the request task to run on virtual threads, one
+		 * per task, when the runtime supports them (Java 21 and above) and no
+		 * {@link #executor(ExecutorService) executor} or
+		 * {@link #requestTaskExecutor(ExecutorService) request task executor} is
+		 * configured. Other runtimes fall back to platform threads. Default is false.
+		 * <p>
+		 * Virtual threads let a processor have many low-rate subscribers without
+		 * exhausting platform threads, as long as they wait on a blocking
+		 * {@link WaitStrategy} such as {@link WaitStrategy#liteBlocking()} rather than
+		 * spinning. The default
+		 * {@link #waitStrategy(WaitStrategy) wait strategy} is then
+		 * {@link WaitStrategy#liteBlocking()}.
+		 * @param virtualThreads true to run on virtual threads when available
+		 * @return builder with provided virtual threads mode
+		 */
+		public Builder<T> virtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
 		/**
 		 * Configures sharing state for this builder. A shared Processor authorizes
 		 * concurrent onNext calls and is suited for multi-threaded publisher that
@@ -187,7 +269,24 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 		}
 
 		/**
-		 * Configures a supplier of dispatched signals to preallocate in the ring buffer
+		 * Configures a shared processor to claim ring buffer slots with a single atomic
+		 * fetch-and-add instead of a compare-and-set loop, and to cache the minimum
+		 * subscriber sequence per publisher thread. Default value is false. This reduces
+		 * contention between a high number of concurrent publishers, but a publisher
+		 * interrupted while waiting for a free slot can no longer give its claim back and
+		 * stalls the subscribers. Ignored unless {@link #share(boolean)} is set.
+		 * @param stripedClaims true to use striped claims for concurrent publishers
+		 * @return builder with specified claim striping
+		 */
+		public Builder<T> stripedClaims(boolean stripedClaims) {
+			this.stripedClaims = stripedClaims;
+			return this;
+		}
+
+		/**
+		 * Configures a supplier of dispatched signals to preallocate in the ring buffer.
+		 * Preallocated signals can be mutated in place with {@code publish} and
+		 * {@code tryPublish} instead of allocating a new signal per {@code onNext}.
 		 * @param signalSupplier A supplier of dispatched signals to preallocate
 		 * @return builder with provided signal supplier
 		 */
@@ -196,25 +295,226 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 			return this;
 		}
 
+		/**
+		 * Configures how the demand of the upstream {@link Subscription} is replenished,
+		 * like {@link Flux#limitRate(int, int)}. <code>highTide</code> signals are
+		 * requested upfront, then each time <code>lowTide</code> signals have been
+		 * consumed they are requested again with a single request, batching the requests
+		 * of small ring buffers. Default values are the buffer size and three quarters
+		 * of it.
+		 * @param highTide the initial request, not more than the buffer size
+		 * @param lowTide the number of consumed signals to replenish at once, not more
+		 *                than <code>highTide</code>
+		 * @return builder with provided request rate
+		 */
+		public Builder<T> requestRate(int highTide, int lowTide) {
+			if (highTide < 1 || lowTide < 1) {
+				throw new IllegalArgumentException("highTide and lowTide must be strictly positive, " +
+						"was: " + highTide + ", " + lowTide);
+			}
+			if (lowTide > highTide) {
+				throw new IllegalArgumentException("lowTide must not exceed highTide " +
+						highTide + ", was: " + lowTide);
+			}
+			this.requestHighTide = highTide;
+			this.requestLowTide = lowTide;
+			return this;
+		}
+
+		/**
+		 * Configures how producers track the slowest subscriber. Default value is 0, in
+		 * which case each subscriber sequence gates the producers directly and a full
+		 * ring buffer check reads all of them. Otherwise the subscriber sequences are
+		 * grouped in a tree of nodes caching the minimum of at most <code>fanOut</code>
+		 * children, and producers only read the root: prefer it with hundreds of
+		 * subscribers, where it trades a scan per producer wrap check for a refresh of
+		 * O(fanOut * log(subscribers)) at worst when a subscriber moves forward, skipped
+		 * when another subscriber is already refreshing the same node.
+		 * @param fanOut 0 to gate on every subscriber, or the maximum number of children
+		 *               of a tree node, greater than 1
+		 * @return builder with provided gating fan-out
+		 */
+		public Builder<T> gatingFanOut(int fanOut) {
+			if (fanOut < 0 || fanOut == 1) {
+				throw new IllegalArgumentException("fanOut must be 0 or greater than 1, was: " + fanOut);
+			}
+			this.gatingFanOut = fanOut;
+			return this;
+		}
+
+		/**
+		 * Configures a listener of the time spent by signals in the processor: the time
+		 * publishers wait for a free slot, the time subscribers wait for new signals and
+		 * the time between the publication and the delivery of each signal. Default is
+		 * none, in which case the clock is never read. Use a {@link LatencyRecorder} to
+		 * take snapshots with {@code metricsSnapshot()}.
+		 * @param metrics the metrics listener
+		 * @return builder with provided metrics listener
+		 */
+		public Builder<T> metrics(@Nullable ProcessorMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * Configures the CPUs the threads running the subscribers are pinned to, using
+		 * {@link AffinityProvider#linux()}. Each thread starting to run a subscriber is
+		 * pinned to the next CPU of the set, round-robin, and gets its previous affinity
+		 * back when the subscriber terminates. Default is none, in which case threads can
+		 * run on any CPU. Pinning is mostly useful with spinning wait strategies, on
+		 * machines where these CPUs are dedicated to the processor.
+		 * <p>
+		 * The Linux provider forks a {@code taskset} process twice per subscriber, to pin
+		 * its thread when it starts and to restore it when it terminates, which suits
+		 * long-lived subscribers rather than frequently renewed ones. Affinity cannot be
+		 * combined with {@link #virtualThreads(boolean) virtual threads}, as pinning one
+		 * would pin the carrier thread it happens to run on.
+		 * @param cpus the CPUs to pin the threads to
+		 * @return builder with provided CPU affinity
+		 */
+		public Builder<T> affinity(int... cpus) {
+			return affinity(AffinityProvider.linux(), cpus);
+		}
+
+		/**
+		 * Configures the CPUs the threads running the subscribers are pinned to, using
+		 * the given {@link AffinityProvider}. Each thread starting to run a subscriber is
+		 * pinned to the next CPU of the set, round-robin, and gets its previous affinity
+		 * back when the subscriber terminates. Affinity cannot be combined with
+		 * {@link #virtualThreads(boolean) virtual threads}.
+		 * @param provider the provider pinning the threads
+		 * @param cpus the CPUs to pin the threads to
+		 * @return builder with provided CPU affinity
+		 */
+		public Builder<T> affinity(AffinityProvider provider, int... cpus) {
+			this.affinity = new ThreadAffinity(Objects.requireNonNull(provider, "provider"), cpus);
+			return this;
+		}
+
+		/**
+		 * Configures how a subscriber stalling the producers is handled. Default is none,
+		 * in which case producers wait for the slowest subscriber however long it takes.
+		 * Otherwise, when a producer finds the ring buffer full and the slowest
+		 * subscriber has not made any progress for <code>stallTimeout</code>, the given
+		 * {@link OverflowPolicy} is applied to that subscriber so that producers can move
+		 * on. Producers still wait on the
+		 * {@link #producerWaitStrategy(WaitStrategy) producer wait strategy}, and are
+		 * woken up to check the stall timeout once it is due.
+		 * @param overflowPolicy the policy to apply to a stalled subscriber
+		 * @param stallTimeout the time without progress after which the slowest
+		 *                     subscriber is considered stalled
+		 * @return builder with provided overflow policy
+		 */
+		public Builder<T> overflowPolicy(OverflowPolicy overflowPolicy, Duration stallTimeout) {
+			this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+			if (stallTimeout.isNegative()) {
+				throw new IllegalArgumentException("stallTimeout must be positive, was: " + stallTimeout);
+			}
+			this.stallTimeoutMillis = stallTimeout.toMillis();
+			return this;
+		}
+
+		/**
+		 * Configures how many of the most recent signals the ring buffer keeps once
+		 * every subscriber consumed them, so that {@link TopicProcessor#replay(int)}
+		 * subscribers can still receive them. Default is 0, in which case only the
+		 * signals not yet consumed by the slowest subscriber are retained. The kept
+		 * signals are not available to producers, so the history must be lower than the
+		 * buffer size, but as they were consumed already they neither count as pending
+		 * nor hold back the requests to an upstream publisher. Publication times are also
+		 * recorded, for {@link TopicProcessor#replay(Duration)}.
+		 * @param history the number of signals to keep, positive
+		 * @return builder with provided history
+		 */
+		public Builder<T> history(int history) {
+			if (history < 0) {
+				throw new IllegalArgumentException("history must be positive, was: " + history);
+			}
+			this.history = history;
+			return this;
+		}
+
+		/**
+		 * Configures the processor to conflate signals by key, for instance to only
+		 * deliver the latest price of each instrument of a market data feed. A signal
+		 * published with {@link TopicProcessor#onNext(Object) onNext} replaces in place
+		 * the latest signal of the same key as long as no subscriber has read it yet, so
+		 * that the work of slow subscribers grows with the number of distinct keys rather
+		 * than with the rate of signals. Once a subscriber read a slot, the next signal of
+		 * its key is published in a new slot, so the conflation window of all the
+		 * subscribers ends with the fastest one. Signals published with {@code offer},
+		 * {@code offerAll} or {@code publish} are not conflated. Default is none.
+		 * @param keyMapper the function returning the non-null key of a signal
+		 * @return builder with provided conflation key
+		 */
+		public Builder<T> conflate(Function<? super T, ?> keyMapper) {
+			this.conflateKey = Objects.requireNonNull(keyMapper, "keyMapper");
+			return this;
+		}
+
+		/**
+		 * Configures the backlog to be kept off heap in the given memory-mapped file, each
+		 * signal being serialized in a slot of at most <code>maxSerializedSize</code>
+		 * bytes when it is published and deserialized when it is read. Signals larger
+		 * than that are kept on heap and are not durable. The file is reset when the
+		 * processor is built: use {@code replayBacklog} to recover its content first,
+		 * for instance after a crash. It is closed once the processor terminated and its
+		 * subscribers stopped.
+		 * @param file the backlog file, created if it does not exist
+		 * @param serializer the {@link BacklogSerializer} converting signals to and from bytes
+		 * @param maxSerializedSize the maximum number of bytes of a serialized signal
+		 * @return builder with provided mapped backlog
+		 */
+		public Builder<T> mappedBacklog(Path file, BacklogSerializer<T> serializer, int maxSerializedSize) {
+			this.backlog = new MappedRingBuffer.Backlog<>(file, serializer, maxSerializedSize);
+			return this;
+		}
+
 		/**
 		 * Creates a new {@link TopicProcessor} using the properties
 		 * of this builder.
 		 * @return a fresh processor
+		 * @throws IllegalArgumentException if both an {@link #affinity(int...) affinity}
+		 * and {@link #virtualThreads(boolean) virtual threads} are configured
 		 */
 		public TopicProcessor<T> build() {
+			if (affinity != null && virtualThreads) {
+				throw new IllegalArgumentException("affinity cannot be combined with virtual threads");
+			}
 			this.name = this.name != null ? this.name : TopicProcessor.class.getSimpleName();
-			this.waitStrategy = this.waitStrategy != null ? this.waitStrategy : WaitStrategy.phasedOffLiteLock(200, 100, TimeUnit.MILLISECONDS);
+			this.waitStrategy = this.waitStrategy != null ? this.waitStrategy :
+					virtualThreads ? WaitStrategy.liteBlocking() : WaitStrategy.phasedOffLiteLock(200, 100, TimeUnit.MILLISECONDS);
+			this.producerWaitStrategy = this.producerWaitStrategy != null ? this.producerWaitStrategy : WaitStrategy.parking(0);
 			ThreadFactory threadFactory = this.executor != null ? null : new EventLoopFactory(name, autoCancel);
-			ExecutorService requestTaskExecutor = this.requestTaskExecutor != null ? this.requestTaskExecutor : defaultRequestTaskExecutor(defaultName(threadFactory, TopicProcessor.class));
+			ExecutorService executor = this.executor;
+			ExecutorService requestTaskExecutor = this.requestTaskExecutor;
+			if (virtualThreads) {
+				executor = executor != null ? executor : VirtualThreads.newExecutor(name);
+				requestTaskExecutor = requestTaskExecutor != null ? requestTaskExecutor :
+						VirtualThreads.newExecutor(defaultName(threadFactory, TopicProcessor.class) + "[request-task]");
+			}
+			requestTaskExecutor = requestTaskExecutor != null ? requestTaskExecutor : defaultRequestTaskExecutor(defaultName(threadFactory, TopicProcessor.class));
 			return new TopicProcessor<>(
 					threadFactory,
 					executor,
 					requestTaskExecutor,
 					bufferSize,
 					waitStrategy,
+					producerWaitStrategy,
 					share,
+					share && stripedClaims,
 					autoCancel,
-					signalSupplier);
+					signalSupplier,
+					backlog,
+					gatingFanOut,
+					requestHighTide,
+					requestLowTide,
+					metrics,
+					overflowPolicy,
+					stallTimeoutMillis,
+					affinity,
+					history,
+					conflateKey);
 		}
 	}
 
@@ -274,26 +574,225 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 
 	final RingBuffer.Sequence minimum;
 
+	@Nullable
+	final GatingSequenceTree gatingTree;
+
+	/**
+	 * Whether each slot of the ring buffer holds a signal preallocated with the
+	 * {@code signalSupplier}, that can be translated in place.
+	 */
+	final boolean preallocated;
+
+	/**
+	 * The policy applied to a subscriber stalling the producers, if any.
+	 */
+	@Nullable
+	final OverflowPolicy overflowPolicy;
+
+	final long stallTimeoutMillis;
+
+	/**
+	 * The number of most recent signals the ring buffer keeps for replay, 0 if none.
+	 */
+	final int history;
+
+	/**
+	 * The conflation state, if signals are conflated by key.
+	 */
+	@Nullable
+	final ConflatingSlots<E> conflating;
+
 	TopicProcessor(
 			@Nullable ThreadFactory threadFactory,
 			@Nullable ExecutorService executor,
 			ExecutorService requestTaskExecutor,
 			int bufferSize,
 			WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy,
 			boolean shared,
+			boolean stripedClaims,
 			boolean autoCancel,
-			@Nullable final Supplier<E> signalSupplier) {
+			@Nullable final Supplier<E> signalSupplier,
+			@Nullable MappedRingBuffer.Backlog<E> backlog,
+			int gatingFanOut,
+			int requestHighTide,
+			int requestLowTide,
+			@Nullable ProcessorMetrics metrics,
+			@Nullable OverflowPolicy overflowPolicy,
+			long stallTimeoutMillis,
+			@Nullable ThreadAffinity affinity,
+			int history,
+			@Nullable Function<? super E, ?> conflateKey) {
 		super(bufferSize, threadFactory, executor, requestTaskExecutor, autoCancel,
-				shared, () -> {
+				shared, stripedClaims, () -> {
 			Slot<E> signal = new Slot<>();
 			if (signalSupplier != null) {
 				signal.value = signalSupplier.get();
 			}
 			return signal;
-		}, waitStrategy);
+		}, waitStrategy, producerWaitStrategy, backlog, requestHighTide, requestLowTide, metrics, affinity,
+				history > 0);
+
+		if (history < 0 || history >= bufferSize) {
+			throw new IllegalArgumentException("history must be positive and lower than " +
+					"the bufferSize " + bufferSize + ", was: " + history);
+		}
 
 		this.minimum = RingBuffer.newSequence(-1);
 		this.barrier = ringBuffer.newReader();
+		this.gatingTree = gatingFanOut > 0 ? new GatingSequenceTree(ringBuffer, gatingFanOut) : null;
+		this.preallocated = signalSupplier != null && backlog == null;
+		this.overflowPolicy = overflowPolicy;
+		this.stallTimeoutMillis = stallTimeoutMillis;
+		this.history = history;
+		this.conflating = conflateKey != null ? new ConflatingSlots<>(conflateKey, bufferSize) : null;
+		if (history > 0) {
+			ringBuffer.addGatingSequence(new HistorySequence(ringBuffer, history));
+		}
+	}
+
+	/**
+	 * Return a {@link Flux} view of this processor that delivers signals as {@link List}
+	 * batches rather than one by one. Each subscriber to the returned {@link Flux} is
+	 * registered like a regular subscriber of this processor, but receives in a single
+	 * {@code onNext} up to {@code maxBatch} consecutive signals among those already
+	 * available in the ring buffer. Each batch accounts for a single unit of demand.
+	 *
+	 * @param maxBatch the maximum number of signals in a single batch, strictly positive
+	 * @return a {@link Flux} of batched signals
+	 */
+	public Flux<List<E>> batched(int maxBatch) {
+		if (maxBatch < 1) {
+			throw new IllegalArgumentException("maxBatch must be strictly positive, " +
+					"was: " + maxBatch);
+		}
+		return new TopicBatchedFlux<>(this, maxBatch);
+	}
+
+	/**
+	 * Return a {@link Flux} view of this processor whose subscribers first receive up to
+	 * {@code count} of the most recent signals before the new ones. Only signals still
+	 * retained by the ring buffer are replayed: those the slowest subscriber has not
+	 * consumed yet and, if configured, the {@link Builder#history(int) history}. The
+	 * replayed signals are read in place, without being copied.
+	 *
+	 * @param count the maximum number of past signals to replay, positive
+	 * @return a {@link Flux} replaying the most recent signals
+	 */
+	public Flux<E> replay(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count must be positive, was: " + count);
+		}
+		return new TopicReplayFlux<>(this, count, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Return a {@link Flux} view of this processor whose subscribers first receive the
+	 * signals published during the last {@code maxAge} before the new ones, among the
+	 * signals still retained by the ring buffer as with {@link #replay(int)}.
+	 *
+	 * @param maxAge the maximum age of the past signals to replay
+	 * @return a {@link Flux} replaying the recent signals
+	 * @throws IllegalStateException if the processor records neither a
+	 * {@link Builder#history(int) history} nor {@link Builder#metrics(ProcessorMetrics) metrics},
+	 * hence no publication time
+	 */
+	public Flux<E> replay(Duration maxAge) {
+		if (maxAge.isNegative()) {
+			throw new IllegalArgumentException("maxAge must be positive, was: " + maxAge);
+		}
+		if (publishTimes == null) {
+			throw new IllegalStateException("Replaying signals by age requires a history " +
+					"or metrics");
+		}
+		return new TopicReplayFlux<>(this, ringBuffer.bufferSize(), maxAge.toNanos());
+	}
+
+	@Override
+	public void onNext(E o) {
+		final ConflatingSlots<E> conflating = this.conflating;
+		if (conflating == null) {
+			super.onNext(o);
+			return;
+		}
+		Objects.requireNonNull(o, "onNext");
+		conflating.publish(this, o);
+	}
+
+	/**
+	 * Read the signal of a published slot on behalf of a subscriber.
+	 *
+	 * @param seqId the sequence of the slot
+	 * @return the signal of the slot
+	 */
+	E read(long seqId) {
+		final Slot<E> slot = ringBuffer.get(seqId);
+		final ConflatingSlots<E> conflating = this.conflating;
+		return conflating != null ? conflating.read(slot, seqId) : slot.value;
+	}
+
+	/**
+	 * Publish the next signal by mutating in place the signal preallocated in the claimed
+	 * slot, rather than storing a new signal as {@link #onNext(Object)} does. The
+	 * translator receives the preallocated signal and the given argument, which avoids
+	 * capturing it in a new lambda on each call. The signal is published even if the
+	 * translator fails, and the translator failure is then thrown to the caller.
+	 * <p>
+	 * Like {@link #onNext(Object)}, this blocks the caller while the backlog is full and
+	 * follows the same threading rules. Subscribers read the preallocated signals, so
+	 * they must not retain them as the slot will be translated again once the ring
+	 * buffer wraps. Mixing this with {@link #onNext(Object)} replaces the preallocated
+	 * signals of the slots the latter uses.
+	 *
+	 * @param translator the callback mutating the preallocated signal
+	 * @param arg the argument passed to the translator
+	 * @param <A> the type of the translator argument
+	 * @throws IllegalStateException if no {@code signalSupplier} was configured, or if
+	 * the processor uses a mapped backlog
+	 */
+	public <A> void publish(BiConsumer<? super E, ? super A> translator, A arg) {
+		checkPreallocated(translator);
+		translateAndPublish(claimNext(), translator, arg);
+	}
+
+	/**
+	 * Publish the next signal by mutating in place the signal preallocated in the claimed
+	 * slot if the backlog has a free slot, without ever blocking the caller as
+	 * {@link #publish(BiConsumer, Object)} does when the backlog is full. The translator
+	 * is not invoked if the backlog is full.
+	 *
+	 * @param translator the callback mutating the preallocated signal
+	 * @param arg the argument passed to the translator
+	 * @param <A> the type of the translator argument
+	 * @return true if the signal has been published, false if the backlog is full
+	 * @throws IllegalStateException if no {@code signalSupplier} was configured, or if
+	 * the processor uses a mapped backlog
+	 */
+	public <A> boolean tryPublish(BiConsumer<? super E, ? super A> translator, A arg) {
+		checkPreallocated(translator);
+		final long seqId = ringBuffer.tryNext(1);
+		if (seqId == RingBuffer.NO_CAPACITY) {
+			return false;
+		}
+		translateAndPublish(seqId, translator, arg);
+		return true;
+	}
+
+	void checkPreallocated(BiConsumer<?, ?> translator) {
+		Objects.requireNonNull(translator, "translator");
+		if (!preallocated) {
+			throw new IllegalStateException("Translating signals in place requires a " +
+					"signalSupplier and no mapped backlog");
+		}
+	}
+
+	<A> void translateAndPublish(long seqId, BiConsumer<? super E, ? super A> translator, A arg) {
+		try {
+			translator.accept(ringBuffer.get(seqId).value, arg);
+		}
+		finally {
+			publishSlot(seqId);
+		}
 	}
 
 	@Override
@@ -307,44 +806,278 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 
 		//create a unique eventProcessor for this subscriber
 		final RingBuffer.Sequence pendingRequest = RingBuffer.newSequence(0);
-		final TopicInner<E> signalProcessor =
-				new TopicInner<>(this, pendingRequest, actual);
+		subscribeInner(new TopicInner<>(this, pendingRequest, actual));
+	}
+
+	@SuppressWarnings("unchecked")
+	void subscribeBatched(final CoreSubscriber<? super List<E>> actual, int maxBatch) {
+		Objects.requireNonNull(actual, "subscribe");
+
+		if (!alive()) {
+			coldSource(ringBuffer, null, error, minimum).buffer(maxBatch)
+			                                            .subscribe(actual);
+			return;
+		}
+
+		final RingBuffer.Sequence pendingRequest = RingBuffer.newSequence(0);
+		subscribeInner(new TopicInner<>(this, pendingRequest, (CoreSubscriber) actual, maxBatch));
+	}
+
+	void subscribeReplay(final CoreSubscriber<? super E> actual, int count, long maxAgeNanos) {
+		Objects.requireNonNull(actual, "subscribe");
+
+		if (!alive()) {
+			coldSource(ringBuffer, null, error, minimum).takeLast(count)
+			                                            .subscribe(actual);
+			return;
+		}
+
+		final TopicInner<E> inner = new TopicInner<>(this, RingBuffer.newSequence(0), actual);
+		incrementSubscribers();
+		addReplayGatingSequence(inner, count, maxAgeNanos);
+		startInner(inner);
+	}
 
+	/**
+	 * Register the gating sequence of a replaying subscriber behind the cursor.
+	 * Registrations are serialized so that a hold is never mistaken for a slot still
+	 * protected by the other gating sequences.
+	 *
+	 * @param inner the replaying subscriber
+	 * @param count the maximum number of past signals to replay
+	 * @param maxAgeNanos the maximum age of the past signals to replay
+	 */
+	synchronized void addReplayGatingSequence(TopicInner<E> inner, int count, long maxAgeNanos) {
+		//producers may have claimed up to a buffer past the other gating sequences
+		//without noticing the new one, so hold the oldest requested slot and then only
+		//replay from the oldest slot the other gating sequences still protect
+		final long published = publishedSequence();
+		final RingBuffer.Sequence hold = RingBuffer.newSequence(
+				Math.max(published - count, RingBuffer.INITIAL_CURSOR_VALUE));
+		ringBuffer.addGatingSequence(hold);
+		long start = Math.max(hold.getAsLong(), ringBuffer.getMinimumGatingSequence(hold));
+		if (maxAgeNanos != Long.MAX_VALUE) {
+			start = oldestSince(published, start, System.nanoTime() - maxAgeNanos);
+		}
+
+		inner.sequence.set(start);
+		addGatingSequence(inner);
+		ringBuffer.removeGatingSequence(hold);
+	}
+
+	/**
+	 * The highest sequence up to which every slot is published. On a shared ring buffer
+	 * the cursor is the highest claimed sequence, and the slots behind it may still be
+	 * written by other producers.
+	 *
+	 * @return the highest sequence up to which every slot is published
+	 */
+	long publishedSequence() {
+		final long cursor = ringBuffer.getCursor();
+		final long lowest = Math.max(cursor - ringBuffer.bufferSize() + 1L, 0L);
+		return ringBuffer.getSequencer().getHighestPublishedSequence(lowest, cursor);
+	}
+
+	/**
+	 * Find from which sequence the slots have been published since the given time,
+	 * looking back from the given published sequence but not past the given sequence.
+	 *
+	 * @param published the highest sequence up to which every slot is published
+	 * @param lowest the sequence before the oldest slot to look at
+	 * @param since the {@link System#nanoTime()} of the oldest publication
+	 * @return the sequence before the oldest slot published since the given time
+	 */
+	long oldestSince(long published, long lowest, long since) {
+		final long[] publishTimes = Objects.requireNonNull(this.publishTimes);
+		long seqId = Math.max(published, lowest);
+		while (seqId > lowest && publishTimes[(int) seqId & (publishTimes.length - 1)] - since >= 0) {
+			seqId--;
+		}
+		return seqId;
+	}
+
+	void subscribeInner(final TopicInner<E> signalProcessor) {
 		//bind eventProcessor sequence to observe the ringBuffer
 
 		//if only active subscriber, replay missed data
 		if (incrementSubscribers()) {
 
 			signalProcessor.sequence.set(minimum.getAsLong());
-			ringBuffer.addGatingSequence(signalProcessor.sequence);
+			addGatingSequence(signalProcessor);
 			//set eventProcessor sequence to minimum index (replay)
 		}
 		else {
 			//otherwise only listen to new data
 			//set eventProcessor sequence to ringbuffer index
 			signalProcessor.sequence.set(ringBuffer.getCursor());
-			ringBuffer.addGatingSequence(signalProcessor.sequence);
+			addGatingSequence(signalProcessor);
 
 
 		}
 
+		startInner(signalProcessor);
+	}
+
+	@SuppressWarnings("unchecked")
+	void startInner(final TopicInner<E> signalProcessor) {
 		try {
 			//start the subscriber thread
+			subscribers.add(signalProcessor);
 			executor.execute(signalProcessor);
 
 		}
 		catch (Throwable t) {
-			ringBuffer.removeGatingSequence(signalProcessor.sequence);
+			subscribers.remove(signalProcessor);
+			removeGatingSequence(signalProcessor);
 			decrementSubscribers();
 			if (!alive() && RejectedExecutionException.class.isAssignableFrom(t.getClass())){
-				coldSource(ringBuffer, t, error, minimum).subscribe(actual);
+				Flux<E> source = coldSource(ringBuffer, t, error, minimum);
+				if (signalProcessor.maxBatch > 0) {
+					source.buffer(signalProcessor.maxBatch)
+					      .subscribe((CoreSubscriber) signalProcessor.subscriber);
+				}
+				else {
+					source.subscribe(signalProcessor.subscriber);
+				}
 			}
 			else{
-				Operators.error(actual, t);
+				Operators.error(signalProcessor.subscriber, t);
 			}
 		}
 	}
 
+	void addGatingSequence(TopicInner<E> inner) {
+		if (gatingTree != null) {
+			inner.gatingNode = gatingTree.add(inner.sequence);
+		}
+		else {
+			ringBuffer.addGatingSequence(inner.sequence);
+		}
+	}
+
+	void removeGatingSequence(TopicInner<E> inner) {
+		GatingSequenceTree.Node node = inner.gatingNode;
+		if (gatingTree != null && node != null) {
+			gatingTree.remove(inner.sequence, node);
+		}
+		else {
+			ringBuffer.removeGatingSequence(inner.sequence);
+		}
+	}
+
+	@Override
+	long next() {
+		if (overflowPolicy == null) {
+			return ringBuffer.next();
+		}
+		long seqId;
+		while ((seqId = ringBuffer.tryNext(1)) == RingBuffer.NO_CAPACITY) {
+			TopicInner<E> slowest = slowestGatingSubscriber();
+			if (slowest == null) {
+				//a subscriber is being released, its gating sequence is about to go away
+				waitForCapacity(System.currentTimeMillis() + stallTimeoutMillis);
+				continue;
+			}
+			long deadline = slowest.lastProgress + stallTimeoutMillis;
+			if (System.currentTimeMillis() < deadline) {
+				waitForCapacity(deadline);
+			}
+			else {
+				overflow(slowest);
+			}
+		}
+		return seqId;
+	}
+
+	/**
+	 * Wait with the producer {@link WaitStrategy} until the slowest subscriber frees a
+	 * slot, or until the given deadline.
+	 *
+	 * @param deadline the time, in milliseconds since the epoch, the slowest subscriber
+	 * is considered stalled
+	 */
+	void waitForCapacity(long deadline) {
+		long wrapPoint = ringBuffer.getCursor() + 1L - ringBuffer.bufferSize();
+		Disposable deadlineTimer;
+		try {
+			//blocking strategies only run the spin observer once woken up
+			deadlineTimer = Schedulers.parallel()
+			                          .schedule(producerWait::signalAllWhenBlocking,
+					                          Math.max(0L, deadline - System.currentTimeMillis()),
+					                          TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException ree) {
+			//spinning wait strategies still notice the deadline through the spin observer
+			deadlineTimer = null;
+		}
+		try {
+			producerWait.waitFor(wrapPoint, ringBuffer::getMinimumGatingSequence, () -> {
+				if (System.currentTimeMillis() >= deadline) {
+					WaitStrategy.alert();
+				}
+			});
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw Exceptions.propagate(ie);
+		}
+		catch (RuntimeException e) {
+			if (!WaitStrategy.isAlert(e)) {
+				throw e;
+			}
+		}
+		finally {
+			if (deadlineTimer != null) {
+				deadlineTimer.dispose();
+			}
+		}
+	}
+
+	/**
+	 * @return the slowest subscriber still gating the producers, or null if none
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	TopicInner<E> slowestGatingSubscriber() {
+		TopicInner<E> slowest = null;
+		for (Scannable s : subscribers) {
+			TopicInner<E> inner = (TopicInner<E>) s;
+			if (inner.overflow == TopicInner.GATING &&
+					(slowest == null || inner.sequence.getAsLong() < slowest.sequence.getAsLong())) {
+				slowest = inner;
+			}
+		}
+		return slowest;
+	}
+
+	/**
+	 * Apply the {@link OverflowPolicy} to the given stalled subscriber, unless another
+	 * producer already did.
+	 *
+	 * @param slowest the subscriber that made no progress for the stall timeout
+	 */
+	void overflow(TopicInner<E> slowest) {
+		if (!TopicInner.OVERFLOW.compareAndSet(slowest, TopicInner.GATING, TopicInner.RELEASING)) {
+			return;
+		}
+		//stop gating before signalling the subscriber, so that it never resumes gating
+		//before its former gating sequence has been removed
+		removeGatingSequence(slowest);
+		slowest.overflow = TopicInner.OVERFLOWED;
+		if (overflowPolicy == OverflowPolicy.EVICT) {
+			slowest.halt();
+		}
+		else {
+			barrier.alert();
+			demandWait.wakeAll();
+		}
+	}
+
+	@Override
+	int maxClaim() {
+		return ringBuffer.bufferSize() - history;
+	}
+
 	@Override
 	public Flux<E> drain() {
 		return coldSource(ringBuffer, null, error, minimum);
@@ -365,7 +1098,27 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 
 	@Override
 	public long getPending() {
-		return ringBuffer.getPending();
+		if (history == 0) {
+			return ringBuffer.getPending();
+		}
+		return ringBuffer.getCursor() - consumedSequence(null);
+	}
+
+	/**
+	 * Return the minimum of the gating sequences other than the history, which only
+	 * retains signals the subscribers consumed already, or the cursor if there is none.
+	 *
+	 * @param excluded a gating sequence to ignore as well, if any
+	 * @return the last sequence consumed by every subscriber
+	 */
+	long consumedSequence(@Nullable RingBuffer.Sequence excluded) {
+		long min = ringBuffer.getCursor();
+		for (RingBuffer.Sequence s : ringBuffer.getSequenceReceivers()) {
+			if (s != excluded && !(s instanceof HistorySequence)) {
+				min = Math.min(min, s.getAsLong());
+			}
+		}
+		return min;
 	}
 
 	@Override
@@ -376,6 +1129,7 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 				createRequestTask(s, this, minimum::set, () ->
 								SUBSCRIBER_COUNT.get(TopicProcessor.this) == 0 ?
 								minimum.getAsLong() :
+						history > 0 ? consumedSequence(minimum) :
 						ringBuffer.getMinimumGatingSequence(minimum)));
 	}
 
@@ -386,6 +1140,105 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 		}
 	}
 
+	/**
+	 * A {@link Flux} view of a {@link TopicProcessor} delivering {@link List} batches
+	 * of signals.
+	 *
+	 * @param <T> the batched signal type
+	 */
+	static final class TopicBatchedFlux<T> extends Flux<List<T>> implements Scannable {
+
+		final TopicProcessor<T> parent;
+		final int               maxBatch;
+
+		TopicBatchedFlux(TopicProcessor<T> parent, int maxBatch) {
+			this.parent = parent;
+			this.maxBatch = maxBatch;
+		}
+
+		@Override
+		public void subscribe(CoreSubscriber<? super List<T>> actual) {
+			parent.subscribeBatched(actual, maxBatch);
+		}
+
+		@Override
+		@Nullable
+		public Object scanUnsafe(Attr key) {
+			if (key == Attr.PARENT) return parent;
+			if (key == Attr.PREFETCH) return maxBatch;
+
+			return null;
+		}
+	}
+
+	/**
+	 * A {@link Flux} view of a {@link TopicProcessor} replaying recent signals to each
+	 * subscriber.
+	 *
+	 * @param <T> the replayed signal type
+	 */
+	static final class TopicReplayFlux<T> extends Flux<T> implements Scannable {
+
+		final TopicProcessor<T> parent;
+		final int               count;
+		final long              maxAgeNanos;
+
+		TopicReplayFlux(TopicProcessor<T> parent, int count, long maxAgeNanos) {
+			this.parent = parent;
+			this.count = count;
+			this.maxAgeNanos = maxAgeNanos;
+		}
+
+		@Override
+		public void subscribe(CoreSubscriber<? super T> actual) {
+			parent.subscribeReplay(actual, count, maxAgeNanos);
+		}
+
+		@Override
+		@Nullable
+		public Object scanUnsafe(Attr key) {
+			if (key == Attr.PARENT) return parent;
+
+			return null;
+		}
+	}
+
+	/**
+	 * A gating sequence trailing the cursor by the configured history, so that producers
+	 * never overwrite the most recent signals even once every subscriber consumed them.
+	 * It is derived from the cursor on each read and cannot be set.
+	 */
+	static final class HistorySequence implements RingBuffer.Sequence {
+
+		final RingBuffer<?> ringBuffer;
+		final int           history;
+
+		HistorySequence(RingBuffer<?> ringBuffer, int history) {
+			this.ringBuffer = ringBuffer;
+			this.history = history;
+		}
+
+		@Override
+		public long getAsLong() {
+			return ringBuffer.getCursor() - history;
+		}
+
+		@Override
+		public void set(long value) {
+			throw new UnsupportedOperationException("The history sequence follows the cursor");
+		}
+
+		@Override
+		public boolean compareAndSet(long expectedValue, long newValue) {
+			throw new UnsupportedOperationException("The history sequence follows the cursor");
+		}
+
+		@Override
+		public long getAndAdd(long increment) {
+			throw new UnsupportedOperationException("The history sequence follows the cursor");
+		}
+	}
+
 	/**
 	 * Disruptor BatchEventProcessor port that deals with pending demand. <p> Convenience
 	 * class for handling the batching semantics of consuming entries from a {@link
@@ -396,6 +1249,26 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 	final static class TopicInner<T>
 			implements Runnable, Subscription, Scannable {
 
+		static final int GATING     = 0;
+		static final int RELEASING  = 1;
+		static final int OVERFLOWED = 2;
+
+		/**
+		 * {@link #lastProgress} is refreshed every <code>PROGRESS_MASK + 1</code> signals
+		 * while a range is delivered, so that a long range is not taken for a stall.
+		 */
+		static final long PROGRESS_MASK = 255L;
+
+		/**
+		 * The {@link OverflowPolicy} state of this subscriber: {@link #GATING} the
+		 * producers, {@link #RELEASING} while a producer removes its gating sequence, then
+		 * {@link #OVERFLOWED} until it either terminates or resumes gating.
+		 */
+		volatile int overflow;
+		@SuppressWarnings("rawtypes")
+		static final AtomicIntegerFieldUpdater<TopicInner> OVERFLOW =
+				AtomicIntegerFieldUpdater.newUpdater(TopicInner.class, "overflow");
+
 		final AtomicBoolean running = new AtomicBoolean(true);
 
 		final RingBuffer.Sequence sequence = RingBuffer.newSequence(RingBuffer.INITIAL_CURSOR_VALUE);
@@ -406,10 +1279,38 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 
 		final CoreSubscriber<? super T> subscriber;
 
+		/**
+		 * The {@link GatingSequenceTree} leaf tracking this subscriber sequence, if any.
+		 */
+		@Nullable
+		GatingSequenceTree.Node gatingNode;
+
+		/**
+		 * The maximum size of a {@link List} batch delivered to the subscriber, or 0 if
+		 * signals are delivered one by one.
+		 */
+		final int maxBatch;
+
+		/**
+		 * The time, in milliseconds since the epoch, this subscriber last moved its
+		 * sequence forward, delivered a chunk of signals or subscribed.
+		 */
+		volatile long lastProgress = System.currentTimeMillis();
+
+		/**
+		 * The number of times the wait strategy spun or woke up while this subscriber
+		 * waited, only written by the subscriber thread.
+		 */
+		volatile long spins;
+		@SuppressWarnings("rawtypes")
+		static final AtomicLongFieldUpdater<TopicInner> SPINS =
+				AtomicLongFieldUpdater.newUpdater(TopicInner.class, "spins");
+
 		final Runnable waiter = new Runnable() {
 			@Override
 			public void run() {
-				if (!running.get() || processor.isTerminated()) {
+				SPINS.lazySet(TopicInner.this, spins + 1L);
+				if (!running.get() || overflow != GATING || processor.isTerminated()) {
 					WaitStrategy.alert();
 				}
 			}
@@ -426,14 +1327,33 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 		TopicInner(TopicProcessor<T> processor,
 		                            RingBuffer.Sequence pendingRequest,
 				CoreSubscriber<? super T> subscriber) {
+			this(processor, pendingRequest, subscriber, 0);
+		}
+
+		/**
+		 * Construct a ringbuffer consumer that will automatically track the progress by
+		 * updating its sequence
+		 *
+		 * @param processor the target processor
+		 * @param pendingRequest holder for the number of pending requests
+		 * @param subscriber the output Subscriber instance, receiving {@link List} batches
+		 * if maxBatch is strictly positive
+		 * @param maxBatch the maximum size of a batch or 0 to deliver signals one by one
+		 */
+		TopicInner(TopicProcessor<T> processor,
+				RingBuffer.Sequence pendingRequest,
+				CoreSubscriber<? super T> subscriber,
+				int maxBatch) {
 			this.processor = processor;
 			this.pendingRequest = pendingRequest;
 			this.subscriber = subscriber;
+			this.maxBatch = maxBatch;
 		}
 
 		void halt() {
 			running.set(false);
 			processor.barrier.alert();
+			processor.demandWait.wakeAll();
 		}
 
 		/**
@@ -441,14 +1361,17 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 		 */
 		@Override
 		public void run() {
+			final Runnable restoreAffinity = processor.pinThread();
 			try {
 				Thread.currentThread()
 				      .setContextClassLoader(processor.contextClassLoader);
 				subscriber.onSubscribe(this);
 
 				if (!EventLoopProcessor
-						.waitRequestOrTerminalEvent(pendingRequest, processor.barrier, running, sequence, waiter)) {
-					if(!running.get()){
+						.waitRequestOrTerminalEvent(pendingRequest, processor.barrier, running, sequence,
+								processor.demandWait, waiter)) {
+					//an overflowed subscriber is handled by the delivery loop below
+					if(!running.get() && overflow == GATING){
 						return;
 					}
 					if(processor.terminated == SHUTDOWN) {
@@ -466,33 +1389,51 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 					}
 				}
 
-				Slot<T> event;
 				long nextSequence = sequence.getAsLong() + 1L;
 				final boolean unbounded = pendingRequest.getAsLong() == Long.MAX_VALUE;
 
 				while (true) {
 					try {
 
-						final long availableSequence = processor.barrier.waitFor(nextSequence, waiter);
+						final long availableSequence = processor.waitForSlot(processor.barrier, nextSequence, waiter);
 						while (nextSequence <= availableSequence) {
-							event = processor.ringBuffer.get(nextSequence);
-
-								//if bounded and out of capacity
-								while (!unbounded && getAndSub(pendingRequest, 1L) ==
-												0) {
-									//Todo Use WaitStrategy?
-									if(!running.get() || processor.isTerminated()){
-										WaitStrategy.alert();
+							long toDeliver;
+							if (maxBatch > 0) {
+								//a batch accounts for a single unit of demand
+								waitRequest(unbounded, 1L);
+								toDeliver = Math.min(maxBatch, availableSequence - nextSequence + 1L);
+								List<T> batch = new ArrayList<>((int) toDeliver);
+								for (long end = nextSequence + toDeliver; nextSequence < end; nextSequence++) {
+									processor.delivering(nextSequence);
+									batch.add(processor.read(nextSequence));
+								}
+								checkOverflow(unbounded, 1L);
+								onNextBatch(batch);
+								lastProgress = System.currentTimeMillis();
+							}
+							else {
+								//claim as much demand as possible for the available range at once
+								toDeliver = waitRequest(unbounded, availableSequence - nextSequence + 1L);
+								for (long end = nextSequence + toDeliver; nextSequence < end; nextSequence++) {
+									T value = processor.read(nextSequence);
+									//the slot may have been overwritten if producers stopped waiting for it
+									checkOverflow(unbounded, end - nextSequence);
+									processor.delivering(nextSequence);
+									//It's an unbounded subscriber or there is enough capacity to process the signal
+									subscriber.onNext(value);
+									if ((nextSequence & PROGRESS_MASK) == PROGRESS_MASK) {
+										lastProgress = System.currentTimeMillis();
 									}
-									LockSupport.parkNanos(1L);
 								}
-
-								//It's an unbounded subscriber or there is enough capacity to process the signal
-								subscriber.onNext(event.value);
-								nextSequence++;
-
+							}
 						}
 						sequence.set(availableSequence);
+						lastProgress = System.currentTimeMillis();
+						GatingSequenceTree.Node node = gatingNode;
+						if (node != null) {
+							node.childMoved();
+						}
+						processor.producerWait.signalAllWhenBlocking();
 
 						if (Operators.emptySubscription() !=
 								processor.upstreamSubscription) {
@@ -502,6 +1443,20 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 					catch (Throwable ex) {
 						if(WaitStrategy.isAlert(ex) || Exceptions.isCancel(ex)) {
 
+							if (overflow != GATING) {
+								while (overflow == RELEASING) {
+									Thread.yield();
+								}
+								if (processor.overflowPolicy == OverflowPolicy.EVICT) {
+									subscriber.onError(Exceptions.failWithOverflow(
+											"Evicted after stalling the producers for more than " +
+													processor.stallTimeoutMillis + "ms"));
+									break;
+								}
+								nextSequence = resume();
+								processor.barrier.clearAlert();
+								continue;
+							}
 							if (!running.get()) {
 								break;
 							}
@@ -531,13 +1486,73 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 				}
 			}
 			finally {
-				processor.ringBuffer.removeGatingSequence(sequence);
+				restoreAffinity.run();
+				processor.subscribers.remove(this);
+				processor.removeGatingSequence(this);
 				processor.decrementSubscribers();
 				running.set(false);
 				processor.readWait.signalAllWhenBlocking();
 			}
 		}
 
+		/**
+		 * Stop delivering the signals read from the ring buffer if producers no longer
+		 * wait for this subscriber, as they may have overwritten the slots.
+		 *
+		 * @param unbounded true if the subscriber has requested Long.MAX_VALUE
+		 * @param unusedDemand the demand consumed for the signals not delivered
+		 */
+		void checkOverflow(boolean unbounded, long unusedDemand) {
+			if (overflow != GATING) {
+				if (!unbounded) {
+					addCap(pendingRequest, unusedDemand);
+				}
+				WaitStrategy.alert();
+			}
+		}
+
+		/**
+		 * Drop the signals not consumed yet after an overflow, and resume gating the
+		 * producers from the most recently published signal.
+		 *
+		 * @return the next sequence to read
+		 */
+		long resume() {
+			long cursor = processor.ringBuffer.getCursor();
+			sequence.set(cursor);
+			processor.addGatingSequence(this);
+			lastProgress = System.currentTimeMillis();
+			overflow = GATING;
+			return cursor + 1L;
+		}
+
+		/**
+		 * Wait until the subscriber has some pending demand and consume up to {@code n}
+		 * of it with a single update.
+		 *
+		 * @param unbounded true if the subscriber has requested Long.MAX_VALUE
+		 * @param n the maximum amount of demand to consume
+		 *
+		 * @return the amount of demand consumed, between 1 and n
+		 * @throws InterruptedException if the thread is interrupted while waiting
+		 */
+		long waitRequest(boolean unbounded, long n) throws InterruptedException {
+			if (unbounded) {
+				return n;
+			}
+			long r;
+			//if bounded and out of capacity, idle until request(n) signals the demand wait
+			while ((r = getAndSub(pendingRequest, n)) == 0) {
+				processor.demandWait.waitFor(1L, pendingRequest, waiter);
+			}
+			return Math.min(r, n);
+		}
+
+		@SuppressWarnings("unchecked")
+		void onNextBatch(List<T> batch) {
+			((CoreSubscriber<? super List<T>>) (CoreSubscriber) subscriber).onNext(batch);
+		}
+
 		@Override
 		@Nullable
 		public Object scanUnsafe(Attr key) {
@@ -557,6 +1572,8 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 				}
 				return Integer.MIN_VALUE;
 			}
+			if (key == SubscriberSnapshot.LAST_PROGRESS) return lastProgress;
+			if (key == SubscriberSnapshot.SPINS) return spins;
 
 			return null;
 		}
@@ -568,6 +1585,7 @@ public final class TopicProcessor<E> extends EventLoopProcessor<E>  {
 			}
 
 			addCap(pendingRequest, n);
+			processor.demandWait.signalAllWhenBlocking();
 		}
 
 		@Override
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import reactor.util.Logger;
+import reactor.util.Loggers;
+import reactor.util.annotation.Nullable;
+
+/**
+ * Creates executors running each task on its own virtual thread, found by reflection
+ * as the project compiles against Java 8. Virtual threads are available from Java 21,
+ * and earlier runtimes fall back to platform threads.
+ */
+final class VirtualThreads {
+
+	static final Logger log = Loggers.getLogger(VirtualThreads.class);
+
+	@Nullable
+	static final Method OF_VIRTUAL;
+	@Nullable
+	static final Method NAME;
+	@Nullable
+	static final Method FACTORY;
+	@Nullable
+	static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		Method newThreadPerTaskExecutor = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name = builder.getMethod("name", String.class, long.class);
+			factory = builder.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			//preview releases throw when preview features are not enabled
+			ofVirtual.invoke(null);
+		}
+		catch (Throwable e) {
+			log.debug("Virtual threads are not available, falling back to platform threads", e);
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		FACTORY = factory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	/**
+	 * Return true if the runtime supports virtual threads.
+	 *
+	 * @return true if virtual threads are available
+	 */
+	static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Create an executor starting a new virtual thread for each task, named after the
+	 * given prefix.
+	 *
+	 * @param name the thread name prefix
+	 * @return a new executor, or null if virtual threads are not available
+	 */
+	@Nullable
+	static ExecutorService newExecutor(String name) {
+		if (OF_VIRTUAL == null || NAME == null || FACTORY == null || NEW_THREAD_PER_TASK_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 1L);
+			ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			log.debug("Could not create a virtual thread executor, falling back to platform threads", e);
+			return null;
+		}
+	}
+}
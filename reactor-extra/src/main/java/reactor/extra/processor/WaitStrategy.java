@@ -15,6 +15,8 @@
  */
 package reactor.extra.processor;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
@@ -28,6 +30,40 @@ import java.util.function.LongSupplier;
  */
 public abstract class WaitStrategy {
 
+    /**
+     * Adaptive strategy that spins, then yields, then blocks with a
+     * {@link #liteBlocking()} strategy, sizing the spin and yield phases from the
+     * recently observed wait durations, up to 100 microseconds of spinning and 1
+     * millisecond of yielding.
+     *
+     * @return the wait strategy
+     * @see #adaptive(long, long, TimeUnit, WaitStrategy)
+     */
+    public static WaitStrategy adaptive() {
+        return adaptive(100, 1000, TimeUnit.MICROSECONDS, liteBlocking());
+    }
+
+    /**
+     * Adaptive strategy that spins, then yields, then waits using the given fallback
+     * strategy, like {@link #phasedOff(long, long, TimeUnit, WaitStrategy)} but without
+     * fixed phases.
+     * <p>
+     * The strategy keeps a moving average of the time waiters actually waited for a new
+     * value and spins, then yields, for about twice that average so that most values
+     * are picked up without blocking, within the given maximums. When the average wait
+     * exceeds both maximums, waiters block almost right away to save CPU, and spinning
+     * resumes as soon as values arrive at a faster rate again.
+     *
+     * @param maxSpinTimeout the maximum spin timeout
+     * @param maxYieldTimeout the maximum yield timeout
+     * @param units the time unit
+     * @param delegate the target wait strategy to fallback on
+     * @return the wait strategy
+     */
+    public static WaitStrategy adaptive(long maxSpinTimeout, long maxYieldTimeout, TimeUnit units, WaitStrategy delegate) {
+        return new Adaptive(units.toNanos(maxSpinTimeout), units.toNanos(maxYieldTimeout), delegate);
+    }
+
     /**
      * Blocking strategy that uses a lock and condition variable for consumer waiting on a barrier.
      *
@@ -96,6 +132,22 @@ public abstract class WaitStrategy {
         return new Parking(retries);
     }
 
+    /**
+     * Parking strategy that initially spins, then uses a Thread.yield(), and eventually
+     * parks with an exponentially growing period, starting at the minimum number of
+     * nanos the OS and JVM will allow and doubling on each retry up to the given maximum.
+     * <p>
+     * This strategy is suited for publishers waiting on a full ring buffer: it reacts
+     * quickly to short stalls while backing off from the scheduler during long ones.
+     *
+     * @param maxParkTime the maximum park period
+     * @param unit the time unit of the maximum park period
+     * @return the wait strategy
+     */
+    public static WaitStrategy parkingBackoff(long maxParkTime, TimeUnit unit) {
+        return new ParkingBackoff(unit.toNanos(maxParkTime));
+    }
+
     /**
      * <p>Phased wait strategy for waiting consumers on a barrier.</p>
      * <p>
@@ -157,6 +209,37 @@ public abstract class WaitStrategy {
         return Sleeping.INSTANCE;
     }
 
+    /**
+     * Parking strategy that keeps a list of the parked waiters and only wakes up the
+     * ones whose awaited value is available when signalled, rather than all of them. A
+     * {@link WorkQueueProcessor} worker waits for the slot it claimed, so a publication
+     * only wakes up the workers that can process it.
+     * <p>
+     * Waiters also wake up every 10 milliseconds to check for status changes, such as
+     * cancellation, that are not signalled to them directly.
+     *
+     * @return the wait strategy
+     * @see #targeted(long, TimeUnit)
+     */
+    public static WaitStrategy targeted() {
+        return targeted(10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Parking strategy that keeps a list of the parked waiters and only wakes up the
+     * ones whose awaited value is available when signalled, rather than all of them. A
+     * {@link WorkQueueProcessor} worker waits for the slot it claimed, so a publication
+     * only wakes up the workers that can process it.
+     *
+     * @param maxParkTime the maximum time a waiter stays parked before checking for
+     * status changes, such as cancellation, that are not signalled to it directly
+     * @param unit the time unit of the maximum park time
+     * @return the wait strategy
+     */
+    public static WaitStrategy targeted(long maxParkTime, TimeUnit unit) {
+        return new Targeted(unit.toNanos(maxParkTime));
+    }
+
     /**
      * Yielding strategy that uses a Thread.yield() for consumers waiting on a
      * barrier
@@ -175,6 +258,26 @@ public abstract class WaitStrategy {
     public void signalAllWhenBlocking() {
     }
 
+    /**
+     * Wake up all the waiting consumers so that they check their spin observer, for
+     * instance after an alert. Strategies only waking up some of their waiters in
+     * {@link #signalAllWhenBlocking()} must override it.
+     */
+    void wakeAll() {
+        signalAllWhenBlocking();
+    }
+
+    /**
+     * Create a {@link WaitStrategy} of the same kind that does not share any blocking
+     * state with this one, so that it can be signalled independently. Stateless
+     * strategies return themselves.
+     *
+     * @return a wait strategy of the same kind
+     */
+    WaitStrategy copy() {
+        return this;
+    }
+
     /**
      * Wait for the given sequence to be available.  It is possible for this method to return a value
      * less than the sequence number supplied depending on the implementation of the WaitStrategy.  A common
@@ -226,11 +329,136 @@ public abstract class WaitStrategy {
 
     }
 
+    final static class Adaptive extends WaitStrategy {
+
+        private final long         maxSpinNanos;
+        private final long         maxYieldNanos;
+        private final WaitStrategy fallbackStrategy;
+
+        /**
+         * Moving average of the recent wait durations, updated by the waiters without
+         * synchronization as losing a sample is harmless.
+         */
+        volatile long averageWaitNanos;
+
+        Adaptive(long maxSpinNanos, long maxYieldNanos, WaitStrategy fallbackStrategy)
+        {
+            if (maxSpinNanos < 0L || maxYieldNanos < 0L) {
+                throw new IllegalArgumentException("maxSpinTimeout and maxYieldTimeout must be positive, was: " +
+                        maxSpinNanos + "ns and " + maxYieldNanos + "ns");
+            }
+            this.maxSpinNanos = maxSpinNanos;
+            this.maxYieldNanos = maxYieldNanos;
+            this.fallbackStrategy = fallbackStrategy;
+        }
+
+        @Override
+        WaitStrategy copy() {
+            return new Adaptive(maxSpinNanos, maxYieldNanos, fallbackStrategy.copy());
+        }
+
+        @Override
+        public void signalAllWhenBlocking()
+        {
+            fallbackStrategy.signalAllWhenBlocking();
+        }
+
+        @Override
+        void wakeAll()
+        {
+            fallbackStrategy.wakeAll();
+        }
+
+        /**
+         * Return how long waiters currently spin before yielding.
+         *
+         * @return the spin phase duration in nanoseconds
+         */
+        long spinNanos() {
+            long target = averageWaitNanos << 1;
+            if (target > maxSpinNanos + maxYieldNanos) {
+                return 0L;
+            }
+            return Math.min(target, maxSpinNanos);
+        }
+
+        /**
+         * Return how long waiters currently yield before falling back, after spinning.
+         *
+         * @return the yield phase duration in nanoseconds
+         */
+        long yieldNanos() {
+            long target = averageWaitNanos << 1;
+            if (target > maxSpinNanos + maxYieldNanos) {
+                return 0L;
+            }
+            return Math.max(target - maxSpinNanos, 0L);
+        }
+
+        void record(long waitNanos) {
+            long average = averageWaitNanos;
+            averageWaitNanos = average + ((waitNanos - average) >> AVERAGE_SHIFT);
+        }
+
+        @Override
+        public long waitFor(long sequence, LongSupplier cursor, Runnable barrier)
+                throws InterruptedException
+        {
+            long availableSequence;
+            if ((availableSequence = cursor.getAsLong()) >= sequence)
+            {
+                return availableSequence;
+            }
+
+            long startTime = System.nanoTime();
+            long spinTimeout = spinNanos();
+            long yieldTimeout = spinTimeout + yieldNanos();
+            int counter = SPIN_TRIES;
+            try
+            {
+                while ((availableSequence = cursor.getAsLong()) < sequence)
+                {
+                    barrier.run();
+                    if (0 == --counter)
+                    {
+                        counter = SPIN_TRIES;
+                        long timeDelta = System.nanoTime() - startTime;
+                        if (timeDelta >= yieldTimeout)
+                        {
+                            availableSequence = fallbackStrategy.waitFor(sequence, cursor, barrier);
+                            return availableSequence;
+                        }
+                        else if (timeDelta >= spinTimeout)
+                        {
+                            Thread.yield();
+                        }
+                    }
+                }
+                return availableSequence;
+            }
+            finally
+            {
+                if (availableSequence >= sequence)
+                {
+                    record(System.nanoTime() - startTime);
+                }
+            }
+        }
+
+        private static final int SPIN_TRIES    = 100;
+        private static final int AVERAGE_SHIFT = 3;
+    }
+
     final static class Blocking extends WaitStrategy {
 
         private final Lock      lock                     = new ReentrantLock();
         private final Condition processorNotifyCondition = lock.newCondition();
 
+        @Override
+        WaitStrategy copy() {
+            return new Blocking();
+        }
+
         @Override
         public void signalAllWhenBlocking()
         {
@@ -324,6 +552,11 @@ public abstract class WaitStrategy {
         private final Condition     processorNotifyCondition = lock.newCondition();
         private final AtomicBoolean signalNeeded             = new AtomicBoolean(false);
 
+        @Override
+        WaitStrategy copy() {
+            return new LiteBlocking();
+        }
+
         @Override
         public void signalAllWhenBlocking()
         {
@@ -396,12 +629,26 @@ public abstract class WaitStrategy {
             this.fallbackStrategy = fallbackStrategy;
         }
 
+        @Override
+        WaitStrategy copy() {
+            return new PhasedOff(spinTimeoutNanos,
+                    yieldTimeoutNanos - spinTimeoutNanos,
+                    TimeUnit.NANOSECONDS,
+                    fallbackStrategy.copy());
+        }
+
         @Override
         public void signalAllWhenBlocking()
         {
             fallbackStrategy.signalAllWhenBlocking();
         }
 
+        @Override
+        void wakeAll()
+        {
+            fallbackStrategy.wakeAll();
+        }
+
         @Override
         public long waitFor(long sequence, LongSupplier cursor, Runnable barrier)
                 throws InterruptedException
@@ -498,6 +745,173 @@ public abstract class WaitStrategy {
         private static final int DEFAULT_RETRIES = 200;
     }
 
+    final static class ParkingBackoff extends WaitStrategy {
+
+        private final long maxParkNanos;
+
+        ParkingBackoff(long maxParkNanos) {
+            if (maxParkNanos < 1L) {
+                throw new IllegalArgumentException("maxParkTime must be strictly positive, was: " + maxParkNanos + "ns");
+            }
+            this.maxParkNanos = maxParkNanos;
+        }
+
+        @Override
+        public long waitFor(final long sequence, LongSupplier cursor, final Runnable barrier)
+                throws InterruptedException
+        {
+            long availableSequence;
+            int counter = SPIN_TRIES + YIELD_TRIES;
+            long parkNanos = 1L;
+
+            while ((availableSequence = cursor.getAsLong()) < sequence)
+            {
+                barrier.run();
+
+                if (counter > YIELD_TRIES)
+                {
+                    --counter;
+                }
+                else if (counter > 0)
+                {
+                    --counter;
+                    Thread.yield();
+                }
+                else
+                {
+                    LockSupport.parkNanos(parkNanos);
+                    if (Thread.interrupted())
+                    {
+                        throw new InterruptedException();
+                    }
+                    parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+                }
+            }
+
+            return availableSequence;
+        }
+
+        private static final int SPIN_TRIES  = 100;
+        private static final int YIELD_TRIES = 100;
+    }
+
+    final static class Targeted extends WaitStrategy {
+
+        private final long          maxParkNanos;
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+        Targeted(long maxParkNanos) {
+            if (maxParkNanos < 1L) {
+                throw new IllegalArgumentException("maxParkTime must be strictly positive, was: " + maxParkNanos + "ns");
+            }
+            this.maxParkNanos = maxParkNanos;
+        }
+
+        @Override
+        WaitStrategy copy() {
+            return new Targeted(maxParkNanos);
+        }
+
+        @Override
+        public void signalAllWhenBlocking()
+        {
+            if (waiters.isEmpty())
+            {
+                return;
+            }
+            for (Waiter waiter : waiters)
+            {
+                if (waiter.cursor.getAsLong() >= waiter.sequence)
+                {
+                    waiter.wake();
+                }
+            }
+        }
+
+        @Override
+        void wakeAll()
+        {
+            for (Waiter waiter : waiters)
+            {
+                waiter.wake();
+            }
+        }
+
+        /**
+         * Return the number of parked, or about to park, waiters.
+         *
+         * @return the number of waiters
+         */
+        int waiters() {
+            return waiters.size();
+        }
+
+        @Override
+        public long waitFor(final long sequence, LongSupplier cursor, final Runnable barrier)
+                throws InterruptedException
+        {
+            long availableSequence;
+            int counter = SPIN_TRIES;
+
+            while ((availableSequence = cursor.getAsLong()) < sequence)
+            {
+                barrier.run();
+                if (--counter == 0)
+                {
+                    return park(sequence, cursor, barrier);
+                }
+            }
+
+            return availableSequence;
+        }
+
+        long park(final long sequence, LongSupplier cursor, final Runnable barrier)
+                throws InterruptedException
+        {
+            Waiter waiter = new Waiter(Thread.currentThread(), sequence, cursor);
+            waiters.offer(waiter);
+            try
+            {
+                long availableSequence;
+                //the cursor is read again once registered, so that a signal sent before
+                //the registration is never missed
+                while ((availableSequence = cursor.getAsLong()) < sequence)
+                {
+                    barrier.run();
+                    LockSupport.parkNanos(this, maxParkNanos);
+                    if (Thread.interrupted())
+                    {
+                        throw new InterruptedException();
+                    }
+                }
+                return availableSequence;
+            }
+            finally
+            {
+                waiters.remove(waiter);
+            }
+        }
+
+        static final class Waiter {
+
+            final Thread       thread;
+            final long         sequence;
+            final LongSupplier cursor;
+
+            Waiter(Thread thread, long sequence, LongSupplier cursor) {
+                this.thread = thread;
+                this.sequence = sequence;
+                this.cursor = cursor;
+            }
+
+            void wake() {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private static final int SPIN_TRIES = 100;
+    }
+
     final static class Yielding extends WaitStrategy {
 
 	    static final WaitStrategy.Yielding
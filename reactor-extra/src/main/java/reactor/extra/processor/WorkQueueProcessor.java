@@ -16,6 +16,10 @@
 
 package reactor.extra.processor;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -24,18 +28,21 @@ import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.function.Supplier;
 
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
 import reactor.core.Exceptions;
 import reactor.core.Scannable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.Logger;
 import reactor.util.Loggers;
 import reactor.util.annotation.Nullable;
@@ -84,13 +91,27 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 		ExecutorService requestTaskExecutor;
 		int bufferSize;
 		WaitStrategy waitStrategy;
+		WaitStrategy producerWaitStrategy;
+		MappedRingBuffer.Backlog<T> backlog;
 		boolean share;
+		boolean stripedClaims;
 		boolean autoCancel;
+		int claimBatchSize;
+		int requestHighTide;
+		int requestLowTide;
+		ProcessorMetrics metrics;
+		ThreadAffinity affinity;
+		boolean virtualThreads;
+		int lanes;
+		int laneBufferSize;
+		int starvationLimit;
+		boolean workStealing;
 
 		Builder() {
 			this.bufferSize = Queues.SMALL_BUFFER_SIZE;
 			this.autoCancel = true;
 			this.share = false;
+			this.claimBatchSize = 1;
 		}
 
 		/**
@@ -136,6 +157,24 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			return this;
 		}
 
+		/**
+		 * Configures the wait strategy publishers use while the ring buffer is full.
+		 * Default value is {@link WaitStrategy#parking(int) parking(0)}, which parks for
+		 * the minimum period between each capacity check. Use
+		 * {@link WaitStrategy#busySpin()} or {@link WaitStrategy#yielding()} to favor
+		 * latency, {@link WaitStrategy#parkingBackoff(long, java.util.concurrent.TimeUnit)} to back off from
+		 * the scheduler on long stalls, or {@link WaitStrategy#liteBlocking()} to block
+		 * until a subscriber frees a slot.
+		 * Producer wait strategy is set to default if the provided
+		 * <code>producerWaitStrategy</code> is null.
+		 * @param producerWaitStrategy A RingBuffer WaitStrategy to use on the publish side
+		 * @return builder with provided producer wait strategy
+		 */
+		public Builder<T> producerWaitStrategy(@Nullable WaitStrategy producerWaitStrategy) {
+			this.producerWaitStrategy = producerWaitStrategy;
+			return this;
+		}
+
 		/**
 		 * Configures auto-cancel for this builder. Default value is true.
 		 * @param autoCancel automatically cancel
@@ -169,6 +208,25 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			return this;
 		}
 
+		/**
+		 * Configures the subscribers and the request task to run on virtual threads, one
+		 * per task, when the runtime supports them (Java 21 and above) and no
+		 * {@link #executor(ExecutorService) executor} or
+		 * {@link #requestTaskExecutor(ExecutorService) request task executor} is
+		 * configured. Other runtimes fall back to platform threads. Default is false.
+		 * <p>
+		 * Virtual threads let a processor have many low-rate subscribers without
+		 * exhausting platform threads, as long as they wait on a blocking
+		 * {@link WaitStrategy} such as {@link WaitStrategy#liteBlocking()} rather than
+		 * spinning.
+		 * @param virtualThreads true to run on virtual threads when available
+		 * @return builder with provided virtual threads mode
+		 */
+		public Builder<T> virtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
 		/**
 		 * Configures sharing state for this builder. A shared Processor authorizes
 		 * concurrent onNext calls and is suited for multi-threaded publisher that
@@ -181,25 +239,225 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			return this;
 		}
 
+		/**
+		 * Configures a shared processor to claim ring buffer slots with a single atomic
+		 * fetch-and-add instead of a compare-and-set loop, and to cache the minimum
+		 * subscriber sequence per publisher thread. Default value is false. This reduces
+		 * contention between a high number of concurrent publishers, but a publisher
+		 * interrupted while waiting for a free slot can no longer give its claim back and
+		 * stalls the subscribers. Ignored unless {@link #share(boolean)} is set.
+		 * @param stripedClaims true to use striped claims for concurrent publishers
+		 * @return builder with specified claim striping
+		 */
+		public Builder<T> stripedClaims(boolean stripedClaims) {
+			this.stripedClaims = stripedClaims;
+			return this;
+		}
+
+		/**
+		 * Configures the maximum number of contiguous sequences a subscriber claims from
+		 * the shared work sequence at once. Default value is 1. A larger batch reduces
+		 * contention between subscribers on the shared work sequence, at the cost of a
+		 * coarser distribution of signals. A claim never exceeds the subscriber's pending
+		 * demand nor the signals known to be already published.
+		 * @param claimBatchSize the maximum number of sequences claimed at once, strictly positive
+		 * @return builder with provided claim batch size
+		 */
+		public Builder<T> claimBatchSize(int claimBatchSize) {
+			if (claimBatchSize < 1) {
+				throw new IllegalArgumentException("claimBatchSize must be strictly positive, " +
+						"was: " + claimBatchSize);
+			}
+			this.claimBatchSize = claimBatchSize;
+			return this;
+		}
+
+		/**
+		 * Configures how the demand of the upstream {@link Subscription} is replenished,
+		 * like {@link Flux#limitRate(int, int)}. <code>highTide</code> signals are
+		 * requested upfront, then each time <code>lowTide</code> signals have been
+		 * consumed they are requested again with a single request, batching the requests
+		 * of small ring buffers. Default values are the buffer size and three quarters
+		 * of it.
+		 * @param highTide the initial request, not more than the buffer size
+		 * @param lowTide the number of consumed signals to replenish at once, not more
+		 *                than <code>highTide</code>
+		 * @return builder with provided request rate
+		 */
+		public Builder<T> requestRate(int highTide, int lowTide) {
+			if (highTide < 1 || lowTide < 1) {
+				throw new IllegalArgumentException("highTide and lowTide must be strictly positive, " +
+						"was: " + highTide + ", " + lowTide);
+			}
+			if (lowTide > highTide) {
+				throw new IllegalArgumentException("lowTide must not exceed highTide " +
+						highTide + ", was: " + lowTide);
+			}
+			this.requestHighTide = highTide;
+			this.requestLowTide = lowTide;
+			return this;
+		}
+
+		/**
+		 * Configures a listener of the time spent by signals in the processor: the time
+		 * publishers wait for a free slot, the time subscribers wait for new signals and
+		 * the time between the publication and the delivery of each signal. Default is
+		 * none, in which case the clock is never read. Use a {@link LatencyRecorder} to
+		 * take snapshots with {@code metricsSnapshot()}.
+		 * @param metrics the metrics listener
+		 * @return builder with provided metrics listener
+		 */
+		public Builder<T> metrics(@Nullable ProcessorMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * Configures the CPUs the threads running the subscribers are pinned to, using
+		 * {@link AffinityProvider#linux()}. Each thread starting to run a subscriber is
+		 * pinned to the next CPU of the set, round-robin, and gets its previous affinity
+		 * back when the subscriber terminates. Default is none, in which case threads can
+		 * run on any CPU. Pinning is mostly useful with spinning wait strategies, on
+		 * machines where these CPUs are dedicated to the processor.
+		 * <p>
+		 * The Linux provider forks a {@code taskset} process twice per subscriber, to pin
+		 * its thread when it starts and to restore it when it terminates, which suits
+		 * long-lived subscribers rather than frequently renewed ones. Affinity cannot be
+		 * combined with {@link #virtualThreads(boolean) virtual threads}, as pinning one
+		 * would pin the carrier thread it happens to run on.
+		 * @param cpus the CPUs to pin the threads to
+		 * @return builder with provided CPU affinity
+		 */
+		public Builder<T> affinity(int... cpus) {
+			return affinity(AffinityProvider.linux(), cpus);
+		}
+
+		/**
+		 * Configures the CPUs the threads running the subscribers are pinned to, using
+		 * the given {@link AffinityProvider}. Each thread starting to run a subscriber is
+		 * pinned to the next CPU of the set, round-robin, and gets its previous affinity
+		 * back when the subscriber terminates. Affinity cannot be combined with
+		 * {@link #virtualThreads(boolean) virtual threads}.
+		 * @param provider the provider pinning the threads
+		 * @param cpus the CPUs to pin the threads to
+		 * @return builder with provided CPU affinity
+		 */
+		public Builder<T> affinity(AffinityProvider provider, int... cpus) {
+			this.affinity = new ThreadAffinity(Objects.requireNonNull(provider, "provider"), cpus);
+			return this;
+		}
+
+		/**
+		 * Configures priority lanes: ring buffers of <code>laneBufferSize</code> slots
+		 * served by the same subscribers before the main ring buffer, so that urgent
+		 * signals published with {@link WorkQueueProcessor#onNext(Object, int)} do not
+		 * wait behind a backlog of regular signals. Subscribers take the signals of the
+		 * highest priority lane first, but after <code>starvationLimit</code> signals in
+		 * a row from the lanes they take one from the main ring buffer if it has any.
+		 * Default is none.
+		 * @param lanes the number of priority lanes, strictly positive
+		 * @param laneBufferSize the size of each lane, must be a power of 2
+		 * @param starvationLimit the number of signals in a row taken from the lanes
+		 *                        before a signal of the main ring buffer, strictly positive
+		 * @return builder with provided priority lanes
+		 */
+		public Builder<T> priorityLanes(int lanes, int laneBufferSize, int starvationLimit) {
+			if (lanes < 1) {
+				throw new IllegalArgumentException("lanes must be strictly positive, was: " + lanes);
+			}
+			if (laneBufferSize < 1 || !Queues.isPowerOfTwo(laneBufferSize)) {
+				throw new IllegalArgumentException("laneBufferSize must be a power of 2 : " + laneBufferSize);
+			}
+			if (starvationLimit < 1) {
+				throw new IllegalArgumentException("starvationLimit must be strictly positive, " +
+						"was: " + starvationLimit);
+			}
+			this.lanes = lanes;
+			this.laneBufferSize = laneBufferSize;
+			this.starvationLimit = starvationLimit;
+			return this;
+		}
+
+		/**
+		 * Configures the subscribers to steal work from each other: signals claimed by a
+		 * subscriber but not delivered yet, as it is busy with a slow signal, are taken
+		 * over by subscribers that run out of work, half of them at a time. This only
+		 * matters when subscribers claim several signals at once, with a
+		 * {@link #claimBatchSize(int) claim batch size} above 1 or when
+		 * {@link WorkQueueProcessor#batched(int, Duration) batched}. Idle subscribers look
+		 * for work to steal whenever the {@link WaitStrategy} wakes them up, so that a
+		 * spinning or parking strategy steals sooner than a blocking one, which waits
+		 * for the next publication. Default is false.
+		 * @param workStealing true to let idle subscribers steal claimed signals
+		 * @return builder with provided work stealing mode
+		 */
+		public Builder<T> workStealing(boolean workStealing) {
+			this.workStealing = workStealing;
+			return this;
+		}
+
+		/**
+		 * Configures the backlog to be kept off heap in the given memory-mapped file, each
+		 * signal being serialized in a slot of at most <code>maxSerializedSize</code>
+		 * bytes when it is published and deserialized when it is read. Signals larger
+		 * than that are kept on heap and are not durable. The file is reset when the
+		 * processor is built: use {@code replayBacklog} to recover its content first,
+		 * for instance after a crash. It is closed once the processor terminated and its
+		 * subscribers stopped.
+		 * @param file the backlog file, created if it does not exist
+		 * @param serializer the {@link BacklogSerializer} converting signals to and from bytes
+		 * @param maxSerializedSize the maximum number of bytes of a serialized signal
+		 * @return builder with provided mapped backlog
+		 */
+		public Builder<T> mappedBacklog(Path file, BacklogSerializer<T> serializer, int maxSerializedSize) {
+			this.backlog = new MappedRingBuffer.Backlog<>(file, serializer, maxSerializedSize);
+			return this;
+		}
+
 		/**
 		 * Creates a new {@link WorkQueueProcessor} using the properties
 		 * of this builder.
 		 * @return a fresh processor
+		 * @throws IllegalArgumentException if both an {@link #affinity(int...) affinity}
+		 * and {@link #virtualThreads(boolean) virtual threads} are configured
 		 */
 		public WorkQueueProcessor<T> build() {
+			if (affinity != null && virtualThreads) {
+				throw new IllegalArgumentException("affinity cannot be combined with virtual threads");
+			}
 			String name = this.name != null ? this.name : WorkQueueProcessor.class.getSimpleName();
 			WaitStrategy waitStrategy = this.waitStrategy != null ? this.waitStrategy : WaitStrategy.liteBlocking();
+			WaitStrategy producerWaitStrategy = this.producerWaitStrategy != null ? this.producerWaitStrategy : WaitStrategy.parking(0);
 			ThreadFactory threadFactory = this.executor != null ? null : new EventLoopFactory(name, autoCancel);
-			ExecutorService requestTaskExecutor = this.requestTaskExecutor != null ?
-					this.requestTaskExecutor : defaultRequestTaskExecutor(defaultName(threadFactory, WorkQueueProcessor.class));
+			ExecutorService executor = this.executor;
+			ExecutorService requestTaskExecutor = this.requestTaskExecutor;
+			if (virtualThreads) {
+				executor = executor != null ? executor : VirtualThreads.newExecutor(name);
+				requestTaskExecutor = requestTaskExecutor != null ? requestTaskExecutor :
+						VirtualThreads.newExecutor(defaultName(threadFactory, WorkQueueProcessor.class) + "[request-task]");
+			}
+			requestTaskExecutor = requestTaskExecutor != null ?
+					requestTaskExecutor : defaultRequestTaskExecutor(defaultName(threadFactory, WorkQueueProcessor.class));
 			return new WorkQueueProcessor<>(
 					threadFactory,
 					executor,
 					requestTaskExecutor,
 					bufferSize,
 					waitStrategy,
+					producerWaitStrategy,
 					share,
-					autoCancel);
+					share && stripedClaims,
+					autoCancel,
+					claimBatchSize,
+					backlog,
+					requestHighTide,
+					requestLowTide,
+					metrics,
+					affinity,
+					lanes,
+					laneBufferSize,
+					starvationLimit,
+					workStealing);
 		}
 	}
 
@@ -266,6 +524,19 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 
 	final WaitStrategy writeWait;
 
+	final int claimBatchSize;
+
+	/**
+	 * The priority lanes served before the ring buffer, if any.
+	 */
+	@Nullable
+	final PriorityLanes<E> lanes;
+
+	/**
+	 * True if idle subscribers steal the signals claimed by busy ones.
+	 */
+	final boolean workStealing;
+
 	volatile int replaying;
 
 	@SuppressWarnings("rawtypes")
@@ -278,20 +549,82 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			@Nullable ThreadFactory threadFactory,
 			@Nullable ExecutorService executor,
 			ExecutorService requestTaskExecutor,
-			int bufferSize, WaitStrategy waitStrategy, boolean share,
-	                                boolean autoCancel) {
+			int bufferSize, WaitStrategy waitStrategy,
+			WaitStrategy producerWaitStrategy, boolean share,
+			boolean stripedClaims,
+	                                boolean autoCancel,
+			int claimBatchSize,
+			@Nullable MappedRingBuffer.Backlog<E> backlog,
+			int requestHighTide,
+			int requestLowTide,
+			@Nullable ProcessorMetrics metrics,
+			@Nullable ThreadAffinity affinity,
+			int lanes,
+			int laneBufferSize,
+			int starvationLimit,
+			boolean workStealing) {
 		super(bufferSize, threadFactory,
 				executor, requestTaskExecutor,
 				autoCancel,
 				share,
+				stripedClaims,
 				FACTORY,
-				waitStrategy);
+				waitStrategy,
+				producerWaitStrategy,
+				backlog,
+				requestHighTide,
+				requestLowTide,
+				metrics,
+				affinity,
+				false);
 
 		this.writeWait = waitStrategy;
+		this.claimBatchSize = claimBatchSize;
+		this.lanes = lanes > 0 ?
+				new PriorityLanes<>(lanes, laneBufferSize, starvationLimit, producerWait, this) : null;
+		this.workStealing = workStealing;
 
 		ringBuffer.addGatingSequence(workSequence);
 	}
 
+	/**
+	 * Publish a signal with the given priority: 0 publishes it in the ring buffer like
+	 * {@link #onNext(Object)}, while higher priorities publish it in the matching
+	 * {@link Builder#priorityLanes(int, int, int) priority lane}, the last lane having
+	 * the highest priority. This blocks the caller while the lane is full, and can be
+	 * called concurrently whether the processor is shared or not. Signals waiting in the
+	 * lanes are not counted by {@link #getPending()} and are not part of {@link #drain()}.
+	 *
+	 * @param o the signal to publish
+	 * @param priority the priority of the signal, from 0 to the number of lanes
+	 */
+	public void onNext(E o, int priority) {
+		Objects.requireNonNull(o, "onNext");
+		if (priority == 0) {
+			onNext(o);
+			return;
+		}
+		final PriorityLanes<E> lanes = this.lanes;
+		final int count = lanes != null ? lanes.rings.length : 0;
+		if (lanes == null || priority < 0 || priority > count) {
+			throw new IllegalArgumentException("priority must be between 0 and the number " +
+					"of priority lanes " + count + ", was: " + priority);
+		}
+		lanes.publish(o, priority);
+		//subscribers waiting on the ring buffer check the lanes when woken up
+		ringBuffer.getSequencer().waitStrategy.wakeAll();
+	}
+
+	/**
+	 * Return true if no priority lane holds a signal to deliver.
+	 *
+	 * @return true if the priority lanes are drained
+	 */
+	boolean lanesDrained() {
+		final PriorityLanes<E> lanes = this.lanes;
+		return lanes == null || !lanes.hasWork();
+	}
+
 	@Override
 	public void subscribe(final CoreSubscriber<? super E> actual) {
 		Objects.requireNonNull(actual, "subscribe");
@@ -302,8 +635,77 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			return;
 		}
 
-		final WorkQueueInner<E> signalProcessor =
-				new WorkQueueInner<>(actual, this);
+		subscribeInner(new WorkQueueInner<>(actual, this), actual);
+	}
+
+	/**
+	 * Subscribe like {@link #subscribe(CoreSubscriber)}, running the given callback once
+	 * the subscriber thread is done with the subscriber after it cancelled or
+	 * terminated: it delivers no more signals, and any signal it claimed without
+	 * delivering it has been handed over to the other subscribers. The callback is not
+	 * run for a processor that is not alive anymore, whose signals are drained directly.
+	 *
+	 * @param actual the subscriber
+	 * @param onTerminate the callback run by the subscriber thread as it exits
+	 */
+	void subscribe(CoreSubscriber<? super E> actual, Runnable onTerminate) {
+		Objects.requireNonNull(actual, "subscribe");
+
+		if (!alive()) {
+			TopicProcessor.coldSource(ringBuffer, null, error, workSequence).subscribe(
+					actual);
+			return;
+		}
+
+		WorkQueueInner<E> inner = new WorkQueueInner<>(actual, this);
+		inner.onTerminate = onTerminate;
+		subscribeInner(inner, actual);
+	}
+
+	/**
+	 * Return a {@link Flux} view of this processor that delivers signals as {@link List}
+	 * batches rather than one by one. Each subscriber to the returned {@link Flux} is
+	 * registered like a regular subscriber of this processor, competing with the others
+	 * for signals, but collects the signals it takes directly from the ring buffer
+	 * into a batch. A batch is emitted once it holds {@code maxSize} signals, or once
+	 * {@code maxTime} elapsed since its first signal and no more signals are available.
+	 * With a zero {@code maxTime}, a batch is emitted as soon as no more signals are
+	 * available. Each batch accounts for a single unit of demand.
+	 * <p>
+	 * This replaces a {@code bufferTimeout} downstream of a regular subscriber, without
+	 * the extra queue and thread hop.
+	 *
+	 * @param maxSize the maximum number of signals in a single batch, strictly positive
+	 * @param maxTime the maximum time to wait for more signals before emitting a batch
+	 * @return a {@link Flux} of batched signals
+	 */
+	public Flux<List<E>> batched(int maxSize, Duration maxTime) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be strictly positive, " +
+					"was: " + maxSize);
+		}
+		if (maxTime.isNegative()) {
+			throw new IllegalArgumentException("maxTime must be positive, was: " + maxTime);
+		}
+		return new WorkQueueBatchedFlux<>(this, maxSize, maxTime.toNanos());
+	}
+
+	@SuppressWarnings("unchecked")
+	void subscribeBatched(final CoreSubscriber<? super List<E>> actual, int maxSize, long maxTimeNanos) {
+		Objects.requireNonNull(actual, "subscribe");
+
+		if (!alive()) {
+			TopicProcessor.coldSource(ringBuffer, null, error, workSequence).buffer(maxSize)
+			                                                                .subscribe(actual);
+			return;
+		}
+
+		subscribeInner(new WorkQueueInner<>((CoreSubscriber) actual, this, maxSize, maxTimeNanos),
+				(CoreSubscriber) actual);
+	}
+
+	@SuppressWarnings("unchecked")
+	void subscribeInner(WorkQueueInner<E> signalProcessor, CoreSubscriber<? super E> actual) {
 		try {
 
 			incrementSubscribers();
@@ -319,14 +721,22 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 						" another subscriber, detected limit " + maxSubscribers);
 			}
 
+			subscribers.add(signalProcessor);
 			executor.execute(signalProcessor);
 		}
 		catch (Throwable t) {
-			decrementSubscribers();
+			subscribers.remove(signalProcessor);
 			ringBuffer.removeGatingSequence(signalProcessor.sequence);
+			decrementSubscribers();
 			if(RejectedExecutionException.class.isAssignableFrom(t.getClass())){
-				TopicProcessor.coldSource(ringBuffer, t, error, workSequence).subscribe(
-						actual);
+				Flux<E> source = TopicProcessor.coldSource(ringBuffer, t, error, workSequence);
+				if (signalProcessor.maxBatch > 0) {
+					source.buffer(signalProcessor.maxBatch)
+					      .subscribe((CoreSubscriber) actual);
+				}
+				else {
+					source.subscribe(actual);
+				}
 			}
 			else {
 				Operators.error(actual, t);
@@ -392,6 +802,39 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 		}
 	}
 
+	/**
+	 * A {@link Flux} view of a {@link WorkQueueProcessor} delivering {@link List}
+	 * batches of signals.
+	 *
+	 * @param <T> the batched signal type
+	 */
+	static final class WorkQueueBatchedFlux<T> extends Flux<List<T>> implements Scannable {
+
+		final WorkQueueProcessor<T> parent;
+		final int                   maxSize;
+		final long                  maxTimeNanos;
+
+		WorkQueueBatchedFlux(WorkQueueProcessor<T> parent, int maxSize, long maxTimeNanos) {
+			this.parent = parent;
+			this.maxSize = maxSize;
+			this.maxTimeNanos = maxTimeNanos;
+		}
+
+		@Override
+		public void subscribe(CoreSubscriber<? super List<T>> actual) {
+			parent.subscribeBatched(actual, maxSize, maxTimeNanos);
+		}
+
+		@Override
+		@Nullable
+		public Object scanUnsafe(Attr key) {
+			if (key == Attr.PARENT) return parent;
+			if (key == Attr.PREFETCH) return maxSize;
+
+			return null;
+		}
+	}
+
 	/**
 	 * Disruptor WorkProcessor port that deals with pending demand. <p> Convenience class
 	 * for handling the batching semantics of consuming entries from a {@link
@@ -415,11 +858,121 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 
 		final CoreSubscriber<? super T> subscriber;
 
+		/**
+		 * The maximum size of a {@link List} batch delivered to the subscriber, or 0 if
+		 * signals are delivered one by one.
+		 */
+		final int maxBatch;
+
+		/**
+		 * The maximum time to wait for more signals before emitting a batch.
+		 */
+		final long maxBatchNanos;
+
+		/**
+		 * The batch being collected, only accessed by the subscriber thread.
+		 */
+		@Nullable
+		List<T> batch;
+		long batchDeadline;
+		@Nullable
+		Disposable batchTimer;
+
+		/**
+		 * The number of signals in a row taken from the priority lanes, only accessed by
+		 * the subscriber thread.
+		 */
+		int laneStreak;
+
+		/**
+		 * The callback run as the subscriber thread exits, if any.
+		 */
+		@Nullable
+		Runnable onTerminate;
+
+		/**
+		 * The first sequence of the range claimed by this subscriber that neither this
+		 * subscriber nor a thief took yet, or Long.MAX_VALUE while no range is open to
+		 * thieves. Only used when the processor steals work.
+		 */
+		volatile long unclaimed = Long.MAX_VALUE;
+		@SuppressWarnings("rawtypes")
+		static final AtomicLongFieldUpdater<WorkQueueInner> UNCLAIMED =
+				AtomicLongFieldUpdater.newUpdater(WorkQueueInner.class, "unclaimed");
+
+		/**
+		 * The last sequence of the range open to thieves.
+		 */
+		volatile long claimLimit = RingBuffer.INITIAL_CURSOR_VALUE;
+
+		/**
+		 * 1 while a thief delivers signals stolen from this subscriber, which holds its
+		 * sequence behind the first of them, {@link #stealFloor}.
+		 */
+		volatile int stealing;
+		@SuppressWarnings("rawtypes")
+		static final AtomicIntegerFieldUpdater<WorkQueueInner> STEALING =
+				AtomicIntegerFieldUpdater.newUpdater(WorkQueueInner.class, "stealing");
+		volatile long stealFloor = Long.MAX_VALUE;
+
+		/**
+		 * The last sequence this subscriber is done with, which its sequence follows
+		 * unless a thief holds it back.
+		 */
+		volatile long doneSequence = RingBuffer.INITIAL_CURSOR_VALUE;
+
+		/**
+		 * The number of waiter runs before looking for work to steal again, doubling up
+		 * to {@link #MAX_STEAL_BACKOFF} while there is none, only accessed by the
+		 * subscriber thread.
+		 */
+		int stealBackoff = 1;
+		int stealCountdown = 1;
+
+		static final int MAX_STEAL_BACKOFF = 1024;
+
+		/**
+		 * The time, in milliseconds since the epoch, this subscriber last claimed a
+		 * range of signals or subscribed.
+		 */
+		volatile long lastProgress = System.currentTimeMillis();
+
+		/**
+		 * The number of times the wait strategy spun or woke up while this subscriber
+		 * waited, only written by the subscriber thread.
+		 */
+		volatile long spins;
+		@SuppressWarnings("rawtypes")
+		static final AtomicLongFieldUpdater<WorkQueueInner> SPINS =
+				AtomicLongFieldUpdater.newUpdater(WorkQueueInner.class, "spins");
+
+		/**
+		 * Wake up the waiting subscribers once a batch is due, as blocking wait
+		 * strategies do not run the {@link #waiter} until they are signalled.
+		 */
+		final Runnable batchDue = new Runnable() {
+			@Override
+			public void run() {
+				processor.ringBuffer.getSequencer().waitStrategy.wakeAll();
+			}
+		};
+
 		final Runnable waiter = new Runnable() {
 			@Override
 			public void run() {
-				if (barrier.isAlerted() || !isRunning() ||
-						replay(pendingRequest.getAsLong() == Long.MAX_VALUE)) {
+				SPINS.lazySet(WorkQueueInner.this, spins + 1L);
+				if (barrier.isAlerted() || !isRunning() || batchExpired() || laneWork() ||
+						stealable() || replay(pendingRequest.getAsLong() == Long.MAX_VALUE)) {
+					WaitStrategy.alert();
+				}
+			}
+		};
+
+		final Runnable demandWaiter = new Runnable() {
+			@Override
+			public void run() {
+				SPINS.lazySet(WorkQueueInner.this, spins + 1L);
+				if (!isRunning()) {
 					WaitStrategy.alert();
 				}
 			}
@@ -433,8 +986,27 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 		 */
 		WorkQueueInner(CoreSubscriber<? super T> subscriber,
 				WorkQueueProcessor<T> processor) {
+			this(subscriber, processor, 0, 0L);
+		}
+
+		/**
+		 * Construct a ringbuffer consumer that will automatically track the progress by
+		 * updating its sequence
+		 * @param subscriber the output Subscriber instance, receiving {@link List} batches
+		 * if maxBatch is strictly positive
+		 * @param processor the source processor
+		 * @param maxBatch the maximum size of a batch or 0 to deliver signals one by one
+		 * @param maxBatchNanos the maximum time to wait for more signals before emitting
+		 * a batch
+		 */
+		WorkQueueInner(CoreSubscriber<? super T> subscriber,
+				WorkQueueProcessor<T> processor,
+				int maxBatch,
+				long maxBatchNanos) {
 			this.processor = processor;
 			this.subscriber = subscriber;
+			this.maxBatch = maxBatch;
+			this.maxBatchNanos = maxBatchNanos;
 
 			this.barrier = processor.ringBuffer.newReader();
 		}
@@ -442,13 +1014,16 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 		void halt() {
 			running.set(false);
 			barrier.alert();
+			processor.demandWait.wakeAll();
 		}
 
 		boolean isRunning() {
 			return running.get() && (processor.terminated == 0 ||
 					(processor.terminated != FORCED_SHUTDOWN &&
 							processor.error == null &&
-							processor.ringBuffer.getAsLong() > sequence.getAsLong())
+							(processor.ringBuffer.getAsLong() > sequence.getAsLong() ||
+									!processor.claimedDisposed.isEmpty() ||
+									!processor.lanesDrained()))
 			);
 		}
 
@@ -457,8 +1032,10 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 		 */
 		@Override
 		public void run() {
-			long nextSequence;
+			long nextSequence = RingBuffer.INITIAL_CURSOR_VALUE;
+			long claimedSequence = RingBuffer.INITIAL_CURSOR_VALUE;
 			boolean processedSequence = true;
+			final Runnable restoreAffinity = processor.pinThread();
 
 			try {
 
@@ -469,17 +1046,18 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 
 				long cachedAvailableSequence = Long.MIN_VALUE;
 				nextSequence = sequence.getAsLong();
+				claimedSequence = nextSequence;
 				Slot<T> event = null;
 
 				final boolean unbounded = pendingRequest.getAsLong() == Long.MAX_VALUE;
 
 				if (!EventLoopProcessor.waitRequestOrTerminalEvent(pendingRequest, barrier, running, sequence,
-						waiter) && replay(unbounded)) {
+						processor.demandWait, waiter) && replay(unbounded)) {
 					if(!running.get()){
 						return;
 					}
 					if(processor.terminated == SHUTDOWN) {
-						if (processor.ringBuffer.getAsLong() == -1L) {
+						if (processor.ringBuffer.getAsLong() == -1L && processor.lanesDrained()) {
 							if (processor.error != null) {
 								subscriber.onError(processor.error);
 								return;
@@ -504,21 +1082,61 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 							if(!running.get()){
 								break;
 							}
+							//signals handed over by cancelled subscribers were published first
+							if (nextSequence >= claimedSequence &&
+									!processor.claimedDisposed.isEmpty() &&
+									replay(unbounded)) {
+								WaitStrategy.alert();
+							}
+							//the priority lanes go first, unless they held back the ring buffer for too long
+							if (pollLanes(unbounded, nextSequence < claimedSequence ||
+									processor.ringBuffer.getCursor() > processor.workSequence.getAsLong())) {
+								continue;
+							}
 							processedSequence = false;
-							do {
-								nextSequence = processor.workSequence.getAsLong() + 1L;
-								while ((!unbounded && pendingRequest.getAsLong() == 0L)) {
-									if (!isRunning()) {
-										WaitStrategy.alert();
+							final long taken = nextSequence < claimedSequence ?
+									takeClaimed(nextSequence, claimedSequence) : Long.MIN_VALUE;
+							if (taken != Long.MIN_VALUE) {
+								//drain the range claimed previously without touching the work sequence
+								setSequence(nextSequence);
+								nextSequence = taken;
+								lastProgress = System.currentTimeMillis();
+								processor.producerWait.signalAllWhenBlocking();
+							}
+							else {
+								long current, claim;
+								do {
+									current = processor.workSequence.getAsLong();
+									nextSequence = current + 1L;
+									//a batch being collected already accounts for its demand
+									while ((!unbounded && batch == null && pendingRequest.getAsLong() == 0L)) {
+										processor.demandWait.waitFor(1L, pendingRequest, demandWaiter);
 									}
-									LockSupport.parkNanos(1L);
+									setSequence(current);
+									claim = current + claimSize(current,
+											cachedAvailableSequence,
+											unbounded);
 								}
-								sequence.set(nextSequence - 1L);
+								while (!processor.workSequence.compareAndSet(current, claim));
+								claimedSequence = claim;
+								openClaim(nextSequence, claim);
+								lastProgress = System.currentTimeMillis();
+								processor.producerWait.signalAllWhenBlocking();
 							}
-							while (!processor.workSequence.compareAndSet(nextSequence - 1L, nextSequence));
 						}
 
-						if (cachedAvailableSequence >= nextSequence) {
+						if (cachedAvailableSequence >= nextSequence && maxBatch > 0) {
+							if (batch == null) {
+								//a batch accounts for a single unit of demand
+								readNextEvent(unbounded);
+								startBatch();
+							}
+							processedSequence = true;
+							laneStreak = 0;
+							processor.delivering(nextSequence);
+							addToBatch(processor.ringBuffer.get(nextSequence).value);
+						}
+						else if (cachedAvailableSequence >= nextSequence) {
 							event = processor.ringBuffer.get(nextSequence);
 
 							try {
@@ -532,14 +1150,23 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 							}
 
 							processedSequence = true;
+							laneStreak = 0;
+							processor.delivering(nextSequence);
 							subscriber.onNext(event.value);
 
 
 						}
 						else {
+							if (pollLanes(unbounded, processor.ringBuffer.getCursor() >= nextSequence) ||
+									steal(unbounded)) {
+								continue;
+							}
+							if (batch != null && (maxBatchNanos == 0L || batchExpired())) {
+								flushBatch();
+							}
 							processor.readWait.signalAllWhenBlocking();
 								cachedAvailableSequence =
-										barrier.waitFor(nextSequence, waiter);
+										processor.waitForSlot(barrier, nextSequence, waiter);
 
 						}
 
@@ -560,13 +1187,17 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 						if (!running.get()) {
 							break;
 						}
+						if (batch != null) {
+							//due or about to terminate
+							flushBatch();
+						}
 						if(processor.terminated == SHUTDOWN) {
 							if (processor.error != null) {
 								processedSequence = true;
 								subscriber.onError(processor.error);
 								break;
 							}
-							if (processor.ringBuffer.getPending() == 0) {
+							if (processor.ringBuffer.getPending() == 0 && processor.lanesDrained()) {
 								processedSequence = true;
 								subscriber.onComplete();
 								break;
@@ -582,18 +1213,38 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 				}
 			}
 			finally {
-				processor.decrementSubscribers();
+				restoreAffinity.run();
+				discardBatch();
+				processor.subscribers.remove(this);
 				running.set(false);
 
 				if(!processedSequence) {
 					processor.claimedDisposed.add(sequence);
 				}
-				else{
+				//hand over the rest of a partially consumed claim to the other subscribers
+				long handedOver = nextSequence + 1L;
+				if (processor.workStealing) {
+					handedOver = Math.max(handedOver, closeClaim());
+					//stolen signals are only protected by the sequence until delivered
+					while (stealing != 0) {
+						Thread.yield();
+					}
+				}
+				for (long s = handedOver; s <= claimedSequence; s++) {
+					RingBuffer.Sequence claimed = RingBuffer.newSequence(s - 1L);
+					processor.ringBuffer.addGatingSequence(claimed);
+					processor.claimedDisposed.add(claimed);
+				}
+				if(processedSequence) {
 					processor.ringBuffer.removeGatingSequence(sequence);
 				}
-
+				//a terminated processor releases its ring buffer once no subscriber uses it
+				processor.decrementSubscribers();
 
 				processor.writeWait.signalAllWhenBlocking();
+				if (onTerminate != null) {
+					onTerminate.run();
+				}
 			}
 		}
 
@@ -636,9 +1287,19 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 							}
 						}
 
-						readNextEvent(unbounded);
-						subscriber.onNext((T) v);
-						processor.claimedDisposed.poll();
+						if (maxBatch > 0) {
+							if (batch == null) {
+								readNextEvent(unbounded);
+								startBatch();
+							}
+							processor.claimedDisposed.poll();
+							addToBatch((T) v);
+						}
+						else {
+							readNextEvent(unbounded);
+							subscriber.onNext((T) v);
+							processor.claimedDisposed.poll();
+						}
 						if(s != null){
 							processor.ringBuffer.removeGatingSequence(s);
 							s = null;
@@ -666,6 +1327,348 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			}
 		}
 
+		void startBatch() {
+			batch = new ArrayList<>(maxBatch);
+			if (maxBatchNanos > 0L) {
+				batchDeadline = System.nanoTime() + maxBatchNanos;
+				try {
+					batchTimer = Schedulers.parallel()
+					                       .schedule(batchDue, maxBatchNanos, TimeUnit.NANOSECONDS);
+				}
+				catch (RejectedExecutionException ree) {
+					//spinning wait strategies still notice the deadline through the waiter
+					batchTimer = null;
+				}
+			}
+		}
+
+		void addToBatch(T value) {
+			List<T> batch = this.batch;
+			if (batch != null) {
+				batch.add(value);
+				if (batch.size() >= maxBatch) {
+					flushBatch();
+				}
+			}
+		}
+
+		boolean batchExpired() {
+			return batch != null && maxBatchNanos > 0L && System.nanoTime() - batchDeadline >= 0L;
+		}
+
+		@SuppressWarnings("unchecked")
+		void flushBatch() {
+			List<T> batch = this.batch;
+			Disposable timer = this.batchTimer;
+			this.batch = null;
+			this.batchTimer = null;
+			if (timer != null) {
+				timer.dispose();
+			}
+			if (batch != null && !batch.isEmpty()) {
+				((CoreSubscriber<? super List<T>>) (CoreSubscriber) subscriber).onNext(batch);
+			}
+		}
+
+		/**
+		 * Hand over the signals of a batch that could not be emitted to the other
+		 * subscribers.
+		 */
+		void discardBatch() {
+			List<T> batch = this.batch;
+			Disposable timer = this.batchTimer;
+			this.batch = null;
+			this.batchTimer = null;
+			if (timer != null) {
+				timer.dispose();
+			}
+			if (batch != null && !batch.isEmpty()) {
+				processor.claimedDisposed.addAll(batch);
+				processor.readWait.signalAllWhenBlocking();
+			}
+		}
+
+		/**
+		 * Deliver the next signal of the priority lanes, unless this subscriber has no
+		 * demand for it or the ring buffer is due: after {@code starvationLimit} signals
+		 * in a row from the lanes, a pending signal of the ring buffer goes first.
+		 *
+		 * @param unbounded true if the subscriber has requested Long.MAX_VALUE
+		 * @param ringBufferPending true if the ring buffer has a signal to deliver
+		 *
+		 * @return true if a signal of the lanes has been delivered
+		 * @throws InterruptedException if interrupted while waiting for demand
+		 */
+		boolean pollLanes(boolean unbounded, boolean ringBufferPending) throws InterruptedException {
+			final PriorityLanes<T> lanes = processor.lanes;
+			if (lanes == null || !laneDemand(unbounded)) {
+				return false;
+			}
+			if (ringBufferPending && laneStreak >= lanes.starvationLimit) {
+				return false;
+			}
+			final T value = lanes.poll();
+			if (value == null) {
+				laneStreak = 0;
+				return false;
+			}
+			laneStreak++;
+			processor.producerWait.signalAllWhenBlocking();
+			deliver(value, unbounded);
+			return true;
+		}
+
+		/**
+		 * Deliver a signal taken outside of the range claimed by this subscriber, from a
+		 * priority lane or from another subscriber.
+		 *
+		 * @param value the signal to deliver
+		 * @param unbounded true if the subscriber has requested Long.MAX_VALUE
+		 *
+		 * @throws InterruptedException if interrupted while waiting for demand
+		 */
+		void deliver(T value, boolean unbounded) throws InterruptedException {
+			if (maxBatch > 0) {
+				if (batch == null) {
+					//a batch accounts for a single unit of demand
+					readNextEvent(unbounded);
+					startBatch();
+				}
+				addToBatch(value);
+			}
+			else {
+				readNextEvent(unbounded);
+				subscriber.onNext(value);
+			}
+		}
+
+		boolean laneDemand(boolean unbounded) {
+			return unbounded || batch != null || pendingRequest.getAsLong() > 0L;
+		}
+
+		/**
+		 * Return true if a priority lane has a signal this subscriber can take now.
+		 *
+		 * @return true if a priority lane has a signal to deliver
+		 */
+		boolean laneWork() {
+			return processor.lanes != null &&
+					laneDemand(pendingRequest.getAsLong() == Long.MAX_VALUE) &&
+					processor.lanes.hasWork();
+		}
+
+		/**
+		 * Move the sequence of this subscriber forward, but not past the signals a thief
+		 * is still delivering.
+		 *
+		 * @param value the last sequence this subscriber is done with
+		 */
+		void setSequence(long value) {
+			if (processor.workStealing) {
+				doneSequence = value;
+			}
+			if (stealing != 0) {
+				long held = Math.min(value, stealFloor - 1L);
+				sequence.set(held);
+				//the thief may have restored the sequence before the store lowered it
+				if (held < value && stealing == 0) {
+					restoreSequence();
+				}
+				return;
+			}
+			sequence.set(value);
+		}
+
+		/**
+		 * Move the sequence of this subscriber up to the last sequence it is done with,
+		 * once a thief no longer holds it back: the subscriber may not set it again
+		 * before a while, for instance if it waits for the next signal.
+		 */
+		void restoreSequence() {
+			for (;;) {
+				long done = doneSequence;
+				long current = sequence.getAsLong();
+				if (current >= done || sequence.compareAndSet(current, done)) {
+					processor.producerWait.signalAllWhenBlocking();
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Open a newly claimed range to thieves, except its first sequence which this
+		 * subscriber delivers right away.
+		 *
+		 * @param first the first claimed sequence
+		 * @param last the last claimed sequence
+		 */
+		void openClaim(long first, long last) {
+			if (processor.workStealing && last > first) {
+				//thieves cannot match the new range against a stale limit while it is closed
+				unclaimed = Long.MAX_VALUE;
+				claimLimit = last;
+				unclaimed = first + 1L;
+			}
+		}
+
+		/**
+		 * Take the next sequence of the range claimed previously, unless thieves took
+		 * the rest of it.
+		 *
+		 * @param nextSequence the last sequence taken by this subscriber
+		 * @param claimedSequence the last claimed sequence
+		 *
+		 * @return the taken sequence, or Long.MIN_VALUE if none is left
+		 */
+		long takeClaimed(long nextSequence, long claimedSequence) {
+			if (!processor.workStealing) {
+				return nextSequence + 1L;
+			}
+			long u;
+			while ((u = unclaimed) <= claimedSequence) {
+				if (UNCLAIMED.compareAndSet(this, u, u + 1L)) {
+					return u;
+				}
+			}
+			return Long.MIN_VALUE;
+		}
+
+		/**
+		 * Close the claimed range to thieves.
+		 *
+		 * @return the first sequence nobody took, Long.MAX_VALUE if the range was closed
+		 */
+		long closeClaim() {
+			long u;
+			do {
+				u = unclaimed;
+			}
+			while (u != Long.MAX_VALUE && !UNCLAIMED.compareAndSet(this, u, Long.MAX_VALUE));
+			return u;
+		}
+
+		/**
+		 * Return true if another subscriber has claimed signals this subscriber can steal
+		 * now. As this runs while waiting, the other subscribers are only looked at after
+		 * a backoff doubling each time there is nothing to steal.
+		 *
+		 * @return true if there is work to steal
+		 */
+		boolean stealable() {
+			if (!processor.workStealing || --stealCountdown > 0) {
+				return false;
+			}
+			stealBackoff = Math.min(stealBackoff << 1, MAX_STEAL_BACKOFF);
+			stealCountdown = stealBackoff;
+			if (!laneDemand(pendingRequest.getAsLong() == Long.MAX_VALUE)) {
+				return false;
+			}
+			for (Scannable s : processor.subscribers) {
+				if (s != this && s instanceof WorkQueueInner &&
+						((WorkQueueInner<?>) s).unclaimed <= ((WorkQueueInner<?>) s).claimLimit) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Steal and deliver half of the signals another subscriber claimed but did not
+		 * take yet, the earliest ones as they waited the longest. The victim keeps its
+		 * sequence behind the stolen signals until they are delivered, so that thieves
+		 * never move their own sequence backwards.
+		 *
+		 * @param unbounded true if the subscriber has requested Long.MAX_VALUE
+		 *
+		 * @return true if signals have been stolen and delivered
+		 * @throws InterruptedException if interrupted while waiting for demand
+		 */
+		@SuppressWarnings("unchecked")
+		boolean steal(boolean unbounded) throws InterruptedException {
+			if (!processor.workStealing || !laneDemand(unbounded)) {
+				return false;
+			}
+			//about to wait, look at the other subscribers again soon
+			stealBackoff = 1;
+			stealCountdown = 1;
+			for (Scannable s : processor.subscribers) {
+				if (s == this || !(s instanceof WorkQueueInner)) {
+					continue;
+				}
+				final WorkQueueInner<T> victim = (WorkQueueInner<T>) s;
+				final long first = victim.unclaimed;
+				final long last = victim.claimLimit;
+				if (first > last || !STEALING.compareAndSet(victim, 0, 1)) {
+					continue;
+				}
+				try {
+					long n = (last - first + 2L) / 2L;
+					//only steal what can be delivered without waiting for demand
+					if (maxBatch > 0) {
+						n = Math.min(n, maxBatch - (batch != null ? batch.size() : 0));
+					}
+					else if (!unbounded) {
+						n = Math.min(n, pendingRequest.getAsLong());
+					}
+					victim.stealFloor = first;
+					if (n < 1L || !UNCLAIMED.compareAndSet(victim, first, first + n)) {
+						continue;
+					}
+					long seq = first;
+					try {
+						for (; seq < first + n; seq++) {
+							processor.delivering(seq);
+							deliver(processor.ringBuffer.get(seq).value, unbounded);
+						}
+					}
+					catch (InterruptedException | RuntimeException e) {
+						//hand over the stolen signals that could not be delivered
+						for (; seq < first + n; seq++) {
+							processor.claimedDisposed.add(processor.ringBuffer.get(seq).value);
+						}
+						processor.readWait.signalAllWhenBlocking();
+						throw e;
+					}
+					return true;
+				}
+				finally {
+					victim.stealFloor = Long.MAX_VALUE;
+					victim.stealing = 0;
+					victim.restoreSequence();
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Compute how many sequences to claim past the current work sequence. The claim
+		 * is bounded by the configured batch size, by the sequences already known to be
+		 * published and by the pending demand, and is at least 1.
+		 *
+		 * @param current the current work sequence
+		 * @param available the highest sequence known to be published
+		 * @param unbounded true if the subscriber has requested Long.MAX_VALUE
+		 *
+		 * @return the number of sequences to claim
+		 */
+		long claimSize(long current, long available, boolean unbounded) {
+			long n = processor.claimBatchSize;
+			if (maxBatch > 0) {
+				//claim the rest of the batch at once, as it only accounts for one demand
+				List<T> batch = this.batch;
+				n = Math.max(n, maxBatch - (batch != null ? batch.size() : 0));
+				unbounded = true;
+			}
+			if (n == 1L || available <= current) {
+				return 1L;
+			}
+			n = Math.min(n, available - current);
+			if (!unbounded) {
+				n = Math.min(n, pendingRequest.getAsLong());
+			}
+			return Math.max(n, 1L);
+		}
+
 		boolean reschedule(@Nullable Slot<T> event) {
 			if (event != null &&
 					event.value != null) {
@@ -677,14 +1680,10 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			return false;
 		}
 
-		void readNextEvent(final boolean unbounded) {
-				//pause until request
+		void readNextEvent(final boolean unbounded) throws InterruptedException {
+				//pause until request(n) signals the demand wait
 			while ((!unbounded && getAndSub(pendingRequest, 1L) == 0L)) {
-				if (!isRunning()) {
-					WaitStrategy.alert();
-				}
-				//Todo Use WaitStrategy?
-				LockSupport.parkNanos(1L);
+				processor.demandWait.waitFor(1L, pendingRequest, demandWaiter);
 			}
 		}
 
@@ -697,6 +1696,11 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			if (key == Attr.TERMINATED ) return processor.isTerminated();
 			if (key == Attr.CANCELLED) return !running.get();
 			if (key == Attr.REQUESTED_FROM_DOWNSTREAM) return pendingRequest.getAsLong();
+			if (key == Attr.LARGE_BUFFERED) {
+				return processor.ringBuffer.getCursor() - sequence.getAsLong();
+			}
+			if (key == SubscriberSnapshot.LAST_PROGRESS) return lastProgress;
+			if (key == SubscriberSnapshot.SPINS) return spins;
 
 			return null;
 		}
@@ -708,6 +1712,11 @@ public final class WorkQueueProcessor<E> extends EventLoopProcessor<E> {
 			}
 
 			addCap(pendingRequest, n);
+			processor.demandWait.signalAllWhenBlocking();
+			if (processor.lanes != null) {
+				//a subscriber waiting on the ring buffer may now take a signal of the lanes
+				processor.ringBuffer.getSequencer().waitStrategy.wakeAll();
+			}
 		}
 
 		@Override
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DoubleTopicProcessorTest {
+
+	@Test
+	public void everySubscriberReceivesAllValuesThenCompletes() throws Exception {
+		DoubleTopicProcessor processor = DoubleTopicProcessor.builder()
+		                                                     .bufferSize(16)
+		                                                     .build();
+		DoubleAdder first = new DoubleAdder();
+		DoubleAdder second = new DoubleAdder();
+		CountDownLatch completed = new CountDownLatch(2);
+		processor.subscribe(first::add, null, completed::countDown);
+		processor.subscribe(second::add, null, completed::countDown);
+
+		for (int i = 1; i <= 1000; i++) {
+			processor.onNext(i / 2d);
+		}
+		processor.onComplete();
+
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(first.sum()).isEqualTo(250250d);
+		assertThat(second.sum()).isEqualTo(250250d);
+	}
+
+	@Test
+	public void lateSubscriberIsCompletedRightAway() throws Exception {
+		DoubleTopicProcessor processor = DoubleTopicProcessor.builder()
+		                                                     .build();
+		processor.onNext(1d);
+		processor.onComplete();
+
+		CountDownLatch completed = new CountDownLatch(1);
+		processor.subscribe(v -> { }, null, completed::countDown);
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(processor.isDisposed()).isTrue();
+	}
+}
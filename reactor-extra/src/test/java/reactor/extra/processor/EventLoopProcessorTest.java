@@ -48,8 +48,16 @@ public class EventLoopProcessorTest {
 				Executors.newSingleThreadExecutor(),
 				true,
 				false,
+				false,
 				() -> null,
-				WaitStrategy.sleeping()) {
+				WaitStrategy.sleeping(),
+				WaitStrategy.parking(0),
+				null,
+				0,
+				0,
+				null,
+				null,
+				false) {
 			@Override
 			public void run() {
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyRecorderTest {
+
+	@Test
+	public void bucketsKeepValuesWithinPrecision() {
+		for (long value = 0; value < 1_000_000L; value += 7) {
+			long highest = LatencyRecorder.highestValue(LatencyRecorder.bucket(value));
+			assertThat(highest).isGreaterThanOrEqualTo(value);
+			assertThat(highest - value).isLessThanOrEqualTo(value / 32);
+		}
+		assertThat(LatencyRecorder.bucket(Long.MAX_VALUE)).isEqualTo(LatencyRecorder.BUCKET_COUNT - 1);
+	}
+
+	@Test
+	public void snapshotReportsPercentiles() {
+		LatencyRecorder recorder = new LatencyRecorder();
+		for (long i = 1; i <= 1000; i++) {
+			recorder.recordResidency(i * 1000L);
+		}
+		recorder.recordPublishWait(5L);
+
+		LatencyRecorder.Snapshot snapshot = recorder.snapshot(3L);
+
+		assertThat(snapshot.pending()).isEqualTo(3L);
+		assertThat(snapshot.publishWait().count()).isEqualTo(1L);
+		assertThat(snapshot.publishWait().valueAtPercentile(100d)).isEqualTo(5L);
+		assertThat(snapshot.consumerWait().count()).isZero();
+		assertThat(snapshot.consumerWait().valueAtPercentile(99d)).isZero();
+
+		LatencyRecorder.Histogram residency = snapshot.residency();
+		assertThat(residency.count()).isEqualTo(1000L);
+		assertThat(residency.max()).isEqualTo(1_000_000L);
+		assertThat(residency.mean()).isCloseTo(500_500d, within(0.1d));
+		assertThat(residency.valueAtPercentile(50d)).isBetween(500_000L, 500_000L + 500_000L / 32);
+		assertThat(residency.valueAtPercentile(99d)).isBetween(990_000L, 990_000L + 990_000L / 32);
+		assertThat(residency.valueAtPercentile(100d)).isEqualTo(1_000_000L);
+	}
+
+	@Test
+	public void snapshotMergesTimesRecordedByConcurrentThreads() throws Exception {
+		LatencyRecorder recorder = new LatencyRecorder();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			long offset = t;
+			threads[t] = new Thread(() -> {
+				for (long i = 1; i <= 10_000; i++) {
+					recorder.recordResidency(i * 10L + offset);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		LatencyRecorder.Histogram residency = recorder.snapshot(0L).residency();
+		assertThat(residency.count()).isEqualTo(80_000L);
+		assertThat(residency.max()).isEqualTo(100_007L);
+		assertThat(residency.mean()).isCloseTo(50_008.5d, within(0.1d));
+	}
+
+	@Test
+	public void resetClearsRecordedTimes() {
+		LatencyRecorder recorder = new LatencyRecorder();
+		recorder.recordConsumerWait(42L);
+		recorder.reset();
+
+		LatencyRecorder.Histogram consumerWait = recorder.snapshot(0L).consumerWait();
+		assertThat(consumerWait.count()).isZero();
+		assertThat(consumerWait.max()).isZero();
+	}
+
+	@Test
+	public void percentileMustBeInRange() {
+		LatencyRecorder.Histogram histogram = new LatencyRecorder().snapshot(0L).residency();
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> histogram.valueAtPercentile(101d));
+	}
+}
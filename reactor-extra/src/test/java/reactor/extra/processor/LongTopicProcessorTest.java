@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class LongTopicProcessorTest {
+
+	@Test
+	public void everySubscriberReceivesAllValuesThenCompletes() throws Exception {
+		LongTopicProcessor processor = LongTopicProcessor.builder()
+		                                                 .bufferSize(16)
+		                                                 .build();
+		AtomicLong first = new AtomicLong();
+		AtomicLong second = new AtomicLong();
+		CountDownLatch completed = new CountDownLatch(2);
+		processor.subscribe(first::addAndGet, null, completed::countDown);
+		processor.subscribe(second::addAndGet, null, completed::countDown);
+
+		for (long i = 1; i <= 1000; i++) {
+			processor.onNext(i);
+		}
+		processor.onComplete();
+
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(first.get()).isEqualTo(500500L);
+		assertThat(second.get()).isEqualTo(500500L);
+		while (processor.downstreamCount() != 0) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void sharedProducersPublishEveryValue() throws Exception {
+		LongTopicProcessor processor = LongTopicProcessor.builder()
+		                                                 .share(true)
+		                                                 .bufferSize(8)
+		                                                 .build();
+		Queue<Long> received = new ConcurrentLinkedQueue<>();
+		CountDownLatch completed = new CountDownLatch(1);
+		processor.subscribe(received::add, null, completed::countDown);
+
+		ExecutorService producers = Executors.newFixedThreadPool(4);
+		CountDownLatch published = new CountDownLatch(4);
+		for (int p = 0; p < 4; p++) {
+			long offset = p * 250;
+			producers.execute(() -> {
+				for (long i = 0; i < 250; i++) {
+					processor.onNext(offset + i);
+				}
+				published.countDown();
+			});
+		}
+		assertThat(published.await(5, TimeUnit.SECONDS)).isTrue();
+		processor.onComplete();
+
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(received).hasSize(1000)
+		                    .doesNotHaveDuplicates();
+		producers.shutdown();
+	}
+
+	@Test
+	public void offerDoesNotBlockOnFullBuffer() throws Exception {
+		LongTopicProcessor processor = LongTopicProcessor.builder()
+		                                                 .bufferSize(4)
+		                                                 .build();
+		CountDownLatch release = new CountDownLatch(1);
+		Queue<Long> received = new ConcurrentLinkedQueue<>();
+		processor.subscribe(v -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			received.add(v);
+		});
+
+		int offered = 0;
+		while (processor.offer(offered)) {
+			offered++;
+		}
+		//the subscriber only moves its sequence once it consumed the first value
+		assertThat(offered).isEqualTo(4);
+
+		release.countDown();
+		while (received.size() < offered) {
+			Thread.sleep(10);
+		}
+		assertThat(processor.offer(offered)).isTrue();
+		processor.dispose();
+	}
+
+	@Test
+	public void errorIsSignalledAfterRemainingValues() throws Exception {
+		LongTopicProcessor processor = LongTopicProcessor.builder()
+		                                                 .build();
+		AtomicLong sum = new AtomicLong();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch terminated = new CountDownLatch(1);
+		processor.subscribe(sum::addAndGet, e -> {
+			error.set(e);
+			terminated.countDown();
+		}, null);
+
+		processor.onNext(1L);
+		processor.onNext(2L);
+		processor.onError(new IllegalStateException("boom"));
+
+		assertThat(terminated.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(sum.get()).isEqualTo(3L);
+		assertThat(error.get()).hasMessage("boom");
+	}
+
+	@Test
+	public void disposedSubscriberStopsGatingTheProducer() throws Exception {
+		LongTopicProcessor processor = LongTopicProcessor.builder()
+		                                                 .bufferSize(4)
+		                                                 .build();
+		Disposable subscription = processor.subscribe(v -> { });
+		assertThat(processor.downstreamCount()).isEqualTo(1);
+
+		subscription.dispose();
+		while (processor.downstreamCount() != 0) {
+			Thread.sleep(10);
+		}
+		for (long i = 0; i < 100; i++) {
+			assertThat(processor.offer(i)).isTrue();
+		}
+		processor.dispose();
+		assertThat(processor.isDisposed()).isTrue();
+	}
+
+	@Test
+	public void builderRejectsNonPowerOfTwoBufferSize() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> LongTopicProcessor.builder().bufferSize(3));
+	}
+}
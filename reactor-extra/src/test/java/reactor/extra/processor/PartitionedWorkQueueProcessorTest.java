@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2011-2019 Pivotal Software Inc, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactor.extra.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class PartitionedWorkQueueProcessorTest {
+
+	@Test(timeout = 15000L)
+	public void signalsOfAKeyAreDeliveredInOrderToASingleSubscriber() throws Exception {
+		PartitionedWorkQueueProcessor<long[]> processor =
+				PartitionedWorkQueueProcessor.<long[]>builder(signal -> signal[0]).partitions(4)
+				                                                                  .bufferSize(16)
+				                                                                  .build();
+		Map<Long, Queue<String>> receivers = new ConcurrentHashMap<>();
+		Map<Long, List<Long>> received = new ConcurrentHashMap<>();
+		CountDownLatch completed = new CountDownLatch(4);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		for (int i = 0; i < 4; i++) {
+			String subscriber = "subscriber" + i;
+			processor.subscribe(signal -> {
+				receivers.computeIfAbsent(signal[0], k -> new ConcurrentLinkedQueue<>())
+				         .add(subscriber);
+				received.computeIfAbsent(signal[0], k -> new ArrayList<>())
+				        .add(signal[1]);
+			}, error::set, completed::countDown);
+		}
+		while (!processor.balanced()) {
+			Thread.sleep(10);
+		}
+
+		for (long i = 0; i < 1000; i++) {
+			processor.onNext(new long[]{i % 10, i});
+		}
+		processor.onComplete();
+
+		assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(error.get()).isNull();
+		assertThat(received).hasSize(10);
+		for (long key = 0; key < 10; key++) {
+			assertThat(receivers.get(key)).containsOnly(receivers.get(key).peek());
+			List<Long> values = received.get(key);
+			assertThat(values).hasSize(100);
+			for (int j = 0; j < values.size(); j++) {
+				assertThat(values.get(j)).isEqualTo(key + 10L * j);
+			}
+		}
+	}
+
+	@Test(timeout = 15000L)
+	public void singleSubscriberServesEveryPartition() throws Exception {
+		PartitionedWorkQueueProcessor<long[]> processor =
+				PartitionedWorkQueueProcessor.<long[]>builder(signal -> signal[0]).partitions(4)
+				                                                                  .bufferSize(16)
+				                                                                  .build();
+		Map<Long, List<Long>> received = new ConcurrentHashMap<>();
+		CountDownLatch completed = new CountDownLatch(1);
+		processor.subscribe(signal -> received.computeIfAbsent(signal[0], k -> new ArrayList<>())
+		                                      .add(signal[1]),
+				e -> {}, completed::countDown);
+
+		for (long i = 0; i < 1000; i++) {
+			processor.onNext(new long[]{i % 10, i});
+		}
+		processor.onComplete();
+
+		assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(received).hasSize(10);
+		for (long key = 0; key < 10; key++) {
+			List<Long> values = received.get(key);
+			assertThat(values).hasSize(100);
+			for (int j = 0; j < values.size(); j++) {
+				assertThat(values.get(j)).isEqualTo(key + 10L * j);
+			}
+		}
+		assertThat(processor.isTerminated()).isTrue();
+	}
+
+	@Test(timeout = 15000L)
+	public void releasedPartitionIsTakenOverWithItsBacklog() throws Exception {
+		Queue<String> rebalances = new ConcurrentLinkedQueue<>();
+		PartitionedWorkQueueProcessor<Integer> processor =
+				PartitionedWorkQueueProcessor.<Integer>builder(i -> 0).partitions(1)
+				                                                      .bufferSize(64)
+				                                                      .onPartitionAssigned(p -> rebalances.add("assigned" + p))
+				                                                      .onPartitionReleased(p -> rebalances.add("released" + p))
+				                                                      .build();
+		BlockingQueue<Integer> first = new LinkedBlockingQueue<>();
+		Disposable firstSubscriber = processor.subscribe(first::add);
+		processor.onNext(0);
+		assertThat(first.poll(5, TimeUnit.SECONDS)).isEqualTo(0);
+
+		//the first subscriber may still deliver some of these while it stops
+		firstSubscriber.dispose();
+		for (int i = 1; i < 50; i++) {
+			processor.onNext(i);
+		}
+		BlockingQueue<Integer> second = new LinkedBlockingQueue<>();
+		processor.subscribe(second::add);
+		while (!rebalances.contains("released0")) {
+			Thread.sleep(10);
+		}
+
+		List<Integer> received = new ArrayList<>(first);
+		while (received.size() + second.size() < 50) {
+			Thread.sleep(10);
+		}
+		received.addAll(second);
+		for (int i = 0; i < 50; i++) {
+			assertThat(received.get(i)).isEqualTo(i);
+		}
+		assertThat(rebalances).containsExactly("assigned0", "released0", "assigned0");
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void partitionsAreRebalancedWhenSubscribersLeave() throws Exception {
+		PartitionedWorkQueueProcessor<Integer> processor =
+				PartitionedWorkQueueProcessor.<Integer>builder(i -> i).partitions(4)
+				                                                      .build();
+		BlockingQueue<Integer> first = new LinkedBlockingQueue<>();
+		BlockingQueue<Integer> second = new LinkedBlockingQueue<>();
+		processor.subscribe(first::add);
+		Disposable secondSubscriber = processor.subscribe(second::add);
+		while (!processor.balanced()) {
+			Thread.sleep(10);
+		}
+
+		secondSubscriber.dispose();
+		while (processor.downstreamCount() != 1 || !processor.balanced()) {
+			Thread.sleep(10);
+		}
+		for (int i = 0; i < 4; i++) {
+			processor.onNext(i);
+		}
+
+		List<Integer> received = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			received.add(first.poll(5, TimeUnit.SECONDS));
+		}
+		assertThat(received).containsExactlyInAnyOrder(0, 1, 2, 3);
+		processor.shutdown();
+	}
+
+	@Test
+	public void subscribingWithoutFreePartitionIsRejected() {
+		PartitionedWorkQueueProcessor<Integer> processor =
+				PartitionedWorkQueueProcessor.<Integer>builder(i -> i).partitions(1)
+				                                                      .build();
+		processor.subscribe();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		processor.subscribe(v -> {}, error::set);
+
+		assertThat(error.get()).isInstanceOf(IllegalStateException.class);
+		assertThat(processor.downstreamCount()).isEqualTo(1L);
+		processor.shutdown();
+	}
+
+	@Test
+	public void nullKeysAreRoutedToTheFirstPartition() {
+		PartitionedWorkQueueProcessor<Integer> processor =
+				PartitionedWorkQueueProcessor.<Integer>builder(i -> null).partitions(3)
+				                                                         .build();
+		assertThat(processor.partition(null)).isEqualTo(0);
+		assertThat(processor.partition(-7)).isBetween(0, 2);
+		processor.shutdown();
+	}
+
+	@Test
+	public void partitionsMustBeStrictlyPositive() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> PartitionedWorkQueueProcessor.builder(i -> i).partitions(0));
+	}
+}
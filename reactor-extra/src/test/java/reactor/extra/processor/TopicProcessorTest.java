@@ -17,25 +17,43 @@
 package reactor.extra.processor;
 
 import java.awt.event.KeyEvent;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.Condition;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import reactor.core.CoreSubscriber;
+import reactor.core.Exceptions;
 import reactor.core.Scannable;
 import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
@@ -67,6 +85,1080 @@ public class TopicProcessorTest {
 		}
 	}
 
+	@Test(timeout = 15000L)
+	public void batchedDeliversAvailableSignalsAsLists() {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .build();
+		for (int i = 0; i < 10; i++) {
+			processor.onNext(i);
+		}
+
+		StepVerifier.create(processor.batched(4), 2)
+		            .expectNext(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7))
+		            .then(processor::onComplete)
+		            .thenRequest(1)
+		            .expectNext(Arrays.asList(8, 9))
+		            .verifyComplete();
+	}
+
+	@Test
+	public void batchedAfterShutdownBuffersRemainingSignals() {
+		TopicProcessor<Integer> processor = TopicProcessor.create("batched", 16);
+		for (int i = 0; i < 5; i++) {
+			processor.onNext(i);
+		}
+		processor.onComplete();
+
+		StepVerifier.create(processor.batched(2))
+		            .expectNext(Arrays.asList(0, 1), Arrays.asList(2, 3), Arrays.asList(4))
+		            .verifyComplete();
+	}
+
+	@Test
+	public void batchedRejectsNonPositiveBatch() {
+		TopicProcessor<Integer> processor = TopicProcessor.create();
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> processor.batched(0));
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void boundedSubscriberWithoutDemandWaitsOnWaitStrategy() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().waitStrategy(WaitStrategy.liteBlocking())
+		                                                                     .build();
+		AtomicReference<Thread> consumer = new AtomicReference<>();
+		BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+		BaseSubscriber<Integer> subscriber = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				consumer.set(Thread.currentThread());
+				received.add(value);
+			}
+		};
+		processor.subscribe(subscriber);
+
+		processor.onNext(1);
+		processor.onNext(2);
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(1);
+
+		//the subscriber thread parks on the wait strategy instead of spinning
+		while (consumer.get().getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		assertThat(received).isEmpty();
+
+		subscriber.request(1);
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(2);
+		processor.shutdown();
+	}
+
+	@Test
+	public void fullBufferProducerWaitsOnProducerWaitStrategy() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(8)
+		                                                                     .producerWaitStrategy(WaitStrategy.liteBlocking())
+		                                                                     .build();
+		BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+		BaseSubscriber<Integer> subscriber = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				received.add(value);
+			}
+		};
+		processor.subscribe(subscriber);
+
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < 20; i++) {
+				processor.onNext(i);
+			}
+		});
+		producer.start();
+
+		//the producer blocks on the full ring buffer until the subscriber frees a slot
+		while (producer.getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(0);
+
+		subscriber.request(Long.MAX_VALUE);
+		producer.join(5000);
+		assertThat(producer.isAlive()).isFalse();
+		for (int i = 1; i < 20; i++) {
+			assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(i);
+		}
+		processor.shutdown();
+	}
+
+	@Test
+	public void offerDoesNotBlockOnFullBuffer() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(8)
+		                                                                     .build();
+		BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+		CountDownLatch subscribed = new CountDownLatch(1);
+		BaseSubscriber<Integer> subscriber = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				subscribed.countDown();
+			}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				received.add(value);
+			}
+		};
+		processor.subscribe(subscriber);
+
+		for (int i = 0; i < 8; i++) {
+			assertThat(processor.offer(i)).isTrue();
+		}
+		assertThat(processor.offer(8)).isFalse();
+		assertThat(processor.offerAll(Arrays.asList(8, 9))).isFalse();
+
+		assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+		subscriber.request(Long.MAX_VALUE);
+		for (int i = 0; i < 8; i++) {
+			assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(i);
+		}
+
+		while (!processor.offerAll(Arrays.asList(8, 9, 10))) {
+			Thread.sleep(10);
+		}
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(8);
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(9);
+		assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(10);
+		assertThat(received).isEmpty();
+		processor.shutdown();
+	}
+
+	@Test
+	public void offerAllRejectsMoreSignalsThanBufferSize() {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(2)
+		                                                                     .build();
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> processor.offerAll(Arrays.asList(1, 2, 3)));
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void stripedClaimsDeliverEverySignalToEachSubscriber() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().share(true)
+		                                                                     .stripedClaims(true)
+		                                                                     .bufferSize(16)
+		                                                                     .build();
+		CountDownLatch latch = new CountDownLatch(2);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		for (int i = 0; i < 2; i++) {
+			processor.collectList()
+			         .subscribe(list -> {
+				         if (list.size() != 4000 || list.stream().distinct().count() != 4000) {
+					         error.set(new AssertionError("unexpected signals: " + list.size()));
+				         }
+				         latch.countDown();
+			         }, error::set);
+		}
+
+		ExecutorService producers = Executors.newFixedThreadPool(4);
+		CountDownLatch published = new CountDownLatch(4);
+		for (int p = 0; p < 4; p++) {
+			int offset = p * 1000;
+			producers.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					processor.onNext(offset + i);
+				}
+				published.countDown();
+			});
+		}
+
+		Assertions.assertThat(published.await(10, TimeUnit.SECONDS)).isTrue();
+		processor.onComplete();
+		Assertions.assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(error.get()).isNull();
+		producers.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void gatingTreeDeliversEverySignalToManySubscribers() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(8)
+		                                                                     .gatingFanOut(2)
+		                                                                     .build();
+		int subscribers = 20;
+		CountDownLatch latch = new CountDownLatch(subscribers);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		for (int i = 0; i < subscribers; i++) {
+			processor.collectList()
+			         .subscribe(list -> {
+				         for (int j = 0; j < list.size(); j++) {
+					         if (list.get(j) != j) {
+						         error.set(new AssertionError("unexpected signal at " + j + ": " + list.get(j)));
+					         }
+				         }
+				         if (list.size() != 1000) {
+					         error.set(new AssertionError("unexpected signals: " + list.size()));
+				         }
+				         latch.countDown();
+			         }, error::set);
+		}
+
+		//producers only read the root of the tree: 20 subscribers in 10 leaves, then 5, 3, 2 and 1 nodes
+		assertThat(processor.ringBuffer.getSequenceReceivers()).hasSize(1);
+		assertThat(processor.gatingTree.depth()).isEqualTo(5);
+
+		for (int i = 0; i < 1000; i++) {
+			processor.onNext(i);
+		}
+		processor.onComplete();
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(error.get()).isNull();
+	}
+
+	@Test(timeout = 30000L)
+	public void gatingTreeNeverStallsConcurrentProducers() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(8)
+		                                                                     .gatingFanOut(4)
+		                                                                     .share(true)
+		                                                                     .build();
+		int subscribers = 256;
+		int producers = 4;
+		int signals = 1000;
+		CountDownLatch completed = new CountDownLatch(subscribers);
+		AtomicLong received = new AtomicLong();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		for (int i = 0; i < subscribers; i++) {
+			processor.subscribe(v -> received.incrementAndGet(), error::set, completed::countDown);
+		}
+		while (processor.downstreamCount() != subscribers) {
+			Thread.sleep(10);
+		}
+
+		ExecutorService producerPool = Executors.newFixedThreadPool(producers);
+		CountDownLatch published = new CountDownLatch(producers);
+		for (int p = 0; p < producers; p++) {
+			producerPool.execute(() -> {
+				for (int i = 0; i < signals; i++) {
+					processor.onNext(i);
+				}
+				published.countDown();
+			});
+		}
+
+		//a lost refresh leaves the root behind for good, and the producers wait forever
+		assertThat(published.await(20, TimeUnit.SECONDS)).isTrue();
+		processor.onComplete();
+		assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(received.get()).isEqualTo((long) subscribers * producers * signals);
+		assertThat(error.get()).isNull();
+		producerPool.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void gatingTreeReleasesProducerWhenSlowSubscriberCancels() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(4)
+		                                                                     .gatingFanOut(2)
+		                                                                     .build();
+		BlockingQueue<Integer> fast = new LinkedBlockingQueue<>();
+		processor.subscribe(fast::add);
+		AtomicReference<Subscription> slow = new AtomicReference<>();
+		CountDownLatch subscribed = new CountDownLatch(1);
+		processor.subscribe(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				slow.set(subscription);
+				subscribed.countDown();
+			}
+		});
+		assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+
+		for (int i = 0; i < 4; i++) {
+			processor.onNext(i);
+		}
+		assertThat(processor.offer(4)).isFalse();
+
+		slow.get().cancel();
+		for (int i = 4; i < 8; i++) {
+			processor.onNext(i);
+		}
+		for (int i = 0; i < 8; i++) {
+			assertThat(fast.poll(5, TimeUnit.SECONDS)).isEqualTo(i);
+		}
+		processor.shutdown();
+	}
+
+	@Test
+	public void gatingFanOutRejectsOne() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder().gatingFanOut(1));
+	}
+
+	@Test(timeout = 15000L)
+	public void requestRateBatchesUpstreamRequests() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .requestRate(16, 12)
+		                                                                     .build();
+		Queue<Long> requests = new ConcurrentLinkedQueue<>();
+		CountDownLatch completed = new CountDownLatch(1);
+		processor.subscribe(v -> {}, null, completed::countDown);
+		Flux.range(0, 1000)
+		    .doOnRequest(requests::add)
+		    .subscribe(processor);
+
+		assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(requests.poll()).isEqualTo(16L);
+		assertThat(requests).allMatch(r -> r >= 12L);
+	}
+
+	@Test
+	public void requestRateRejectsLowTideAboveHighTide() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder().requestRate(8, 16));
+	}
+
+	@Test
+	public void requestRateRejectsHighTideAboveBufferSize() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder()
+		                                          .bufferSize(8)
+		                                          .requestRate(16, 8)
+		                                          .build());
+	}
+
+	@Test
+	public void replayDeliversRecentSignalsToLateSubscriber() {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .history(8)
+		                                                                     .build();
+		for (int i = 0; i < 20; i++) {
+			processor.onNext(i);
+		}
+
+		StepVerifier.create(processor.replay(5))
+		            .expectNext(15, 16, 17, 18, 19)
+		            .then(() -> {
+			            processor.onNext(20);
+			            processor.onComplete();
+		            })
+		            .expectNext(20)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void replayIsBoundedByHistory() {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .history(8)
+		                                                                     .build();
+		for (int i = 0; i < 40; i++) {
+			processor.onNext(i);
+		}
+
+		StepVerifier.create(processor.replay(100))
+		            .expectNext(32, 33, 34, 35, 36, 37, 38, 39)
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test(timeout = 15000L)
+	public void historyDoesNotStallUpstreamRequests() {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .history(12)
+		                                                                     .build();
+
+		StepVerifier.create(processor)
+		            .then(() -> Flux.range(0, 100)
+		                            .subscribe(processor))
+		            .expectNextCount(100)
+		            .expectComplete()
+		            .verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void replayByAgeSkipsOlderSignals() {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .history(8)
+		                                                                     .build();
+		for (int i = 0; i < 4; i++) {
+			processor.onNext(i);
+		}
+		//backdate the first publications rather than waiting for them to age
+		processor.publishTimes[0] -= Duration.ofHours(1).toNanos();
+		processor.publishTimes[1] -= Duration.ofHours(1).toNanos();
+
+		StepVerifier.create(processor.replay(Duration.ofMinutes(1)))
+		            .expectNext(2, 3)
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void replayByAgeRequiresPublicationTimes() {
+		TopicProcessor<Integer> processor = TopicProcessor.create();
+		Assertions.assertThatExceptionOfType(IllegalStateException.class)
+		          .isThrownBy(() -> processor.replay(Duration.ofSeconds(1)));
+		processor.shutdown();
+	}
+
+	@Test
+	public void conflateKeepsLatestUnreadSignalPerKey() {
+		TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(16)
+		                                                                   .conflate(s -> s.charAt(0))
+		                                                                   .build();
+		processor.onNext("a1");
+		processor.onNext("b1");
+		processor.onNext("a2");
+		processor.onNext("a3");
+		processor.onNext("b2");
+		processor.onNext("c1");
+
+		StepVerifier.create(processor)
+		            .expectNext("a3", "b2", "c1")
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void conflatePublishesAgainOnceRead() {
+		TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(16)
+		                                                                   .conflate(s -> s.charAt(0))
+		                                                                   .build();
+
+		StepVerifier.create(processor)
+		            .then(() -> processor.onNext("a1"))
+		            .expectNext("a1")
+		            .then(() -> processor.onNext("a2"))
+		            .expectNext("a2")
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void historyRejectsBufferSize() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder()
+		                                          .bufferSize(8)
+		                                          .history(8)
+		                                          .build());
+	}
+
+	@Test(timeout = 15000L)
+	public void metricsRecordWaitAndResidencyTimes() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .metrics(new LatencyRecorder())
+		                                                                     .build();
+		CountDownLatch received = new CountDownLatch(100);
+		processor.subscribe(v -> received.countDown());
+		for (int i = 0; i < 100; i++) {
+			processor.onNext(i);
+		}
+		assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+
+		LatencyRecorder.Snapshot snapshot = processor.metricsSnapshot();
+		assertThat(snapshot).isNotNull();
+		assertThat(snapshot.publishWait().count()).isEqualTo(100L);
+		assertThat(snapshot.residency().count()).isEqualTo(100L);
+		assertThat(snapshot.consumerWait().count()).isPositive();
+		assertThat(processor.scan(LatencyRecorder.SNAPSHOT)).isNotNull();
+		processor.shutdown();
+	}
+
+	@Test
+	public void noMetricsSnapshotWithoutLatencyRecorder() {
+		TopicProcessor<Integer> processor = TopicProcessor.create();
+		assertThat(processor.metricsSnapshot()).isNull();
+		assertThat(processor.scan(LatencyRecorder.SNAPSHOT)).isNull();
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void subscriberSnapshotsFindTheLaggard() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().bufferSize(16)
+		                                                                     .build();
+		CountDownLatch received = new CountDownLatch(10);
+		CountDownLatch laggardReceived = new CountDownLatch(2);
+		processor.subscribe(v -> received.countDown());
+		BaseSubscriber<Integer> laggard = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				subscription.request(2);
+			}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				laggardReceived.countDown();
+			}
+		};
+		processor.subscribe(laggard);
+		while (processor.downstreamCount() != 2) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 10; i++) {
+			processor.onNext(i);
+		}
+		assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(laggardReceived.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(processor.inners()).hasSize(2);
+		List<SubscriberSnapshot> snapshots = processor.subscriberSnapshots();
+		assertThat(snapshots).hasSize(2);
+		SubscriberSnapshot slowest = snapshots.stream()
+		                                      .max(Comparator.comparingLong(SubscriberSnapshot::lag))
+		                                      .get();
+		assertThat(slowest.subscriber()).isSameAs(laggard);
+		assertThat(slowest.lag()).isGreaterThanOrEqualTo(8L);
+		assertThat(slowest.requested()).isZero();
+		assertThat(slowest.lastProgress()).isPositive();
+
+		StepVerifier.create(processor.subscriberMetrics(Duration.ofMillis(10)).take(2))
+		            .assertNext(list -> assertThat(list).hasSize(2))
+		            .assertNext(list -> assertThat(list).hasSize(2))
+		            .verifyComplete();
+
+		laggard.dispose();
+		processor.shutdown();
+	}
+
+	@Test
+	public void overflowPolicyEvictsStalledSubscriber() throws Exception {
+		TopicProcessor<Integer> processor =
+				TopicProcessor.<Integer>builder().bufferSize(8)
+				                                 .overflowPolicy(TopicProcessor.OverflowPolicy.EVICT,
+						                                 Duration.ofMillis(100))
+				                                 .build();
+		CountDownLatch received = new CountDownLatch(100);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch evicted = new CountDownLatch(1);
+		processor.subscribe(v -> received.countDown());
+		processor.subscribe(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				subscription.request(1);
+			}
+
+			@Override
+			protected void hookOnError(Throwable throwable) {
+				error.set(throwable);
+				evicted.countDown();
+			}
+		});
+		while (processor.downstreamCount() != 2) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			processor.onNext(i);
+		}
+
+		assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(evicted.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(Exceptions.isOverflow(error.get())).isTrue();
+		processor.shutdown();
+	}
+
+	@Test
+	public void overflowPolicyWakesUpBlockedProducers() throws Exception {
+		TopicProcessor<Integer> processor =
+				TopicProcessor.<Integer>builder().bufferSize(8)
+				                                 .producerWaitStrategy(WaitStrategy.liteBlocking())
+				                                 .overflowPolicy(TopicProcessor.OverflowPolicy.EVICT,
+						                                 Duration.ofMillis(100))
+				                                 .build();
+		CountDownLatch received = new CountDownLatch(100);
+		CountDownLatch evicted = new CountDownLatch(1);
+		processor.subscribe(v -> received.countDown());
+		processor.subscribe(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				subscription.request(1);
+			}
+
+			@Override
+			protected void hookOnError(Throwable throwable) {
+				evicted.countDown();
+			}
+		});
+		while (processor.downstreamCount() != 2) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			processor.onNext(i);
+		}
+
+		assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(evicted.await(5, TimeUnit.SECONDS)).isTrue();
+		processor.shutdown();
+	}
+
+	@Test
+	public void overflowPolicyKeepsSubscriberDrainingLongRange() throws Exception {
+		TopicProcessor<Integer> processor =
+				TopicProcessor.<Integer>builder().bufferSize(4096)
+				                                 .overflowPolicy(TopicProcessor.OverflowPolicy.EVICT,
+						                                 Duration.ofMillis(200))
+				                                 .build();
+		CountDownLatch received = new CountDownLatch(8192);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		processor.subscribe(v -> {
+			//each full range takes longer than the stall timeout to drain
+			long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(100);
+			while (System.nanoTime() < end) {
+				//busy spin
+			}
+			received.countDown();
+		}, error::set);
+		while (processor.downstreamCount() != 1) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 8192; i++) {
+			processor.onNext(i);
+		}
+
+		assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(error.get()).isNull();
+		processor.shutdown();
+	}
+
+	@Test
+	public void overflowPolicyDropsOldestSignalsOfStalledSubscriber() throws Exception {
+		TopicProcessor<Integer> processor =
+				TopicProcessor.<Integer>builder().bufferSize(8)
+				                                 .overflowPolicy(TopicProcessor.OverflowPolicy.DROP_OLDEST,
+						                                 Duration.ofMillis(100))
+				                                 .build();
+		CountDownLatch received = new CountDownLatch(100);
+		Queue<Integer> laggardValues = new ConcurrentLinkedQueue<>();
+		processor.subscribe(v -> received.countDown());
+		BaseSubscriber<Integer> laggard = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				subscription.request(1);
+			}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				laggardValues.add(value);
+			}
+		};
+		processor.subscribe(laggard);
+		while (processor.downstreamCount() != 2) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			processor.onNext(i);
+		}
+		assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(laggardValues).containsExactly(0);
+
+		//the laggard resumes from the most recent signals
+		laggard.request(1);
+		processor.onNext(100);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (laggardValues.size() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(laggardValues).hasSize(2);
+		assertThat(laggardValues.stream().skip(1).findFirst().get()).isGreaterThan(1);
+		assertThat(laggard.isDisposed()).isFalse();
+
+		laggard.dispose();
+		processor.shutdown();
+	}
+
+	@Test
+	public void overflowPolicyRejectsNegativeStallTimeout() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder()
+		                                          .overflowPolicy(TopicProcessor.OverflowPolicy.EVICT,
+				                                          Duration.ofMillis(-1)));
+	}
+
+	@Test
+	public void adaptiveWaitStrategyFollowsWaitDurations() {
+		WaitStrategy.Adaptive strategy = (WaitStrategy.Adaptive)
+				WaitStrategy.adaptive(100, 1000, TimeUnit.MICROSECONDS, WaitStrategy.liteBlocking());
+
+		for (int i = 0; i < 100; i++) {
+			strategy.record(TimeUnit.MICROSECONDS.toNanos(10));
+		}
+		assertThat(strategy.spinNanos()).isBetween(TimeUnit.MICROSECONDS.toNanos(15),
+				TimeUnit.MICROSECONDS.toNanos(20));
+		assertThat(strategy.yieldNanos()).isZero();
+
+		for (int i = 0; i < 100; i++) {
+			strategy.record(TimeUnit.MICROSECONDS.toNanos(300));
+		}
+		assertThat(strategy.spinNanos()).isEqualTo(TimeUnit.MICROSECONDS.toNanos(100));
+		assertThat(strategy.yieldNanos()).isPositive();
+
+		for (int i = 0; i < 100; i++) {
+			strategy.record(TimeUnit.SECONDS.toNanos(1));
+		}
+		assertThat(strategy.spinNanos()).isZero();
+		assertThat(strategy.yieldNanos()).isZero();
+	}
+
+	@Test
+	public void adaptiveWaitStrategyDeliversBurstsAndIdleSignals() throws Exception {
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().waitStrategy(WaitStrategy.adaptive())
+		                                                                     .bufferSize(16)
+		                                                                     .build();
+		CountDownLatch received = new CountDownLatch(1002);
+		processor.subscribe(v -> received.countDown());
+
+		for (int i = 0; i < 1000; i++) {
+			processor.onNext(i);
+		}
+		Thread.sleep(100);
+		processor.onNext(1000);
+		Thread.sleep(100);
+		processor.onNext(1001);
+
+		assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+		processor.shutdown();
+	}
+
+	@Test
+	public void affinityPinsSubscriberThreadsRoundRobin() throws Exception {
+		Queue<BitSet> pinned = new ConcurrentLinkedQueue<>();
+		BitSet initial = new BitSet();
+		initial.set(0, 4);
+		AffinityProvider provider = new AffinityProvider() {
+			@Override
+			public BitSet currentAffinity() {
+				return initial;
+			}
+
+			@Override
+			public boolean pin(BitSet cpus) {
+				pinned.add(cpus);
+				return true;
+			}
+		};
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().affinity(provider, 2, 3)
+		                                                                     .build();
+		CountDownLatch completed = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++) {
+			processor.subscribe(v -> {}, e -> {}, completed::countDown);
+		}
+		processor.onNext(1);
+		processor.onComplete();
+
+		assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(processor.awaitAndShutdown(Duration.ofSeconds(5))).isTrue();
+		assertThat(pinned).hasSize(6);
+		assertThat(pinned.stream()
+		                 .filter(cpus -> cpus.cardinality() == 1)
+		                 .map(cpus -> cpus.nextSetBit(0))
+		                 .collect(Collectors.toList())).containsExactlyInAnyOrder(2, 3, 2);
+		assertThat(pinned.stream()
+		                 .filter(initial::equals)
+		                 .count()).isEqualTo(3L);
+	}
+
+	@Test
+	public void affinityRejectsEmptyCpuSet() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder().affinity(AffinityProvider.noop()));
+	}
+
+	@Test
+	public void affinityRejectsVirtualThreads() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.builder()
+		                                          .affinity(AffinityProvider.noop(), 0)
+		                                          .virtualThreads(true)
+		                                          .build());
+	}
+
+	@Test
+	public void linuxAffinityCpuLists() {
+		BitSet cpus = ThreadAffinity.Linux.parseList("0-2,5,7-8");
+		assertThat(ThreadAffinity.Linux.toList(cpus)).isEqualTo("0,1,2,5,7,8");
+	}
+
+	@Test
+	public void virtualThreadsDeliverToManySubscribers() throws Exception {
+		//Thread#isVirtual is only available from Java 21, the project compiles against Java 8
+		Assume.assumeTrue("Virtual threads are not available", VirtualThreads.isSupported());
+		Method isVirtual = Thread.class.getMethod("isVirtual");
+
+		TopicProcessor<Integer> processor = TopicProcessor.<Integer>builder().name("virtual")
+		                                                                     .virtualThreads(true)
+		                                                                     .build();
+		assertThat(processor.ringBuffer.getSequencer().waitStrategy)
+				.isInstanceOf(WaitStrategy.LiteBlocking.class);
+
+		int subscribers = 500;
+		CountDownLatch received = new CountDownLatch(subscribers * 10);
+		Queue<Thread> threads = new ConcurrentLinkedQueue<>();
+		for (int i = 0; i < subscribers; i++) {
+			processor.subscribe(v -> {
+				threads.add(Thread.currentThread());
+				received.countDown();
+			});
+		}
+		while (processor.downstreamCount() != subscribers) {
+			Thread.sleep(10);
+		}
+		for (int i = 0; i < 10; i++) {
+			processor.onNext(i);
+		}
+
+		assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+		for (Thread thread : threads) {
+			assertThat(thread.getName()).startsWith("virtual-");
+			assertThat(isVirtual.invoke(thread)).isEqualTo(true);
+		}
+		processor.onComplete();
+		assertThat(processor.awaitAndShutdown(Duration.ofSeconds(10))).isTrue();
+	}
+
+	static final class MutableSignal {
+
+		int value;
+	}
+
+	@Test(timeout = 15000L)
+	public void publishTranslatesPreallocatedSignalsInPlace() throws Exception {
+		List<MutableSignal> preallocated = new CopyOnWriteArrayList<>();
+		TopicProcessor<MutableSignal> processor =
+				TopicProcessor.<MutableSignal>builder().bufferSize(4)
+				                                       .signalSupplier(() -> {
+					                                       MutableSignal signal = new MutableSignal();
+					                                       preallocated.add(signal);
+					                                       return signal;
+				                                       })
+				                                       .build();
+		BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+		processor.subscribe(signal -> {
+			assertThat(preallocated).contains(signal);
+			received.add(signal.value);
+		});
+
+		for (int i = 0; i < 10; i++) {
+			processor.publish((signal, v) -> signal.value = v, i);
+		}
+		for (int i = 0; i < 10; i++) {
+			assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(i);
+		}
+		assertThat(preallocated).hasSize(4);
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void tryPublishDoesNotTranslateWhenFull() throws Exception {
+		TopicProcessor<MutableSignal> processor =
+				TopicProcessor.<MutableSignal>builder().bufferSize(2)
+				                                       .signalSupplier(MutableSignal::new)
+				                                       .build();
+		CountDownLatch subscribed = new CountDownLatch(1);
+		processor.subscribe(new BaseSubscriber<MutableSignal>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				subscribed.countDown();
+			}
+		});
+		assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(processor.tryPublish((signal, v) -> signal.value = v, 1)).isTrue();
+		assertThat(processor.tryPublish((signal, v) -> signal.value = v, 2)).isTrue();
+		assertThat(processor.tryPublish((signal, v) -> {
+			throw new AssertionError("translated while full");
+		}, 3)).isFalse();
+		processor.shutdown();
+	}
+
+	@Test
+	public void publishRequiresSignalSupplier() {
+		TopicProcessor<MutableSignal> processor = TopicProcessor.create();
+		Assertions.assertThatExceptionOfType(IllegalStateException.class)
+		          .isThrownBy(() -> processor.publish((signal, v) -> signal.value = v, 1));
+		processor.shutdown();
+	}
+
+	static final BacklogSerializer<String> UTF8 = new BacklogSerializer<String>() {
+		@Override
+		public void write(String value, ByteBuffer target) {
+			target.put(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public String read(ByteBuffer source) {
+			byte[] bytes = new byte[source.remaining()];
+			source.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	@Test(timeout = 15000L)
+	public void mappedBacklogDeliversAndReplaysSignals() throws Exception {
+		Path file = Files.createTempFile("topic", ".backlog");
+		try {
+			TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(8)
+			                                                                   .mappedBacklog(file, UTF8, 4)
+			                                                                   .build();
+			processor.onNext("a");
+			processor.onNext("bb");
+			processor.onNext("too large for a slot");
+			processor.onNext("ccc");
+			processor.onComplete();
+
+			StepVerifier.create(processor)
+			            .expectNext("a", "bb", "too large for a slot", "ccc")
+			            .verifyComplete();
+
+			StepVerifier.create(TopicProcessor.replayBacklog(file, UTF8))
+			            .expectNext("a", "bb", "ccc")
+			            .verifyComplete();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeout = 15000L)
+	public void mappedBacklogReplaysLastLapOnly() throws Exception {
+		Path file = Files.createTempFile("topic", ".backlog");
+		try {
+			TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(4)
+			                                                                   .mappedBacklog(file, UTF8, 8)
+			                                                                   .build();
+			//without subscribers, nothing is consumed and the last lap is retained
+			for (int i = 0; i < 10; i++) {
+				processor.onNext("s" + i);
+			}
+			processor.onComplete();
+
+			StepVerifier.create(TopicProcessor.replayBacklog(file, UTF8))
+			            .expectNext("s6", "s7", "s8", "s9")
+			            .verifyComplete();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeout = 15000L)
+	public void mappedBacklogReplaysUnconsumedSignalsOnly() throws Exception {
+		Path file = Files.createTempFile("topic", ".backlog");
+		try {
+			TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(8)
+			                                                                   .mappedBacklog(file, UTF8, 8)
+			                                                                   .build();
+			CountDownLatch release = new CountDownLatch(1);
+			processor.subscribe(v -> {
+				if ("s3".equals(v)) {
+					try {
+						release.await();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			while (processor.downstreamCount() != 1) {
+				Thread.sleep(10);
+			}
+			for (int i = 0; i < 3; i++) {
+				processor.onNext("s" + i);
+			}
+			while (processor.getPending() != 0) {
+				Thread.sleep(10);
+			}
+			processor.onNext("s3");
+			processor.onNext("s4");
+
+			StepVerifier.create(TopicProcessor.replayBacklog(file, UTF8))
+			            .expectNext("s3", "s4")
+			            .verifyComplete();
+
+			release.countDown();
+			processor.shutdown();
+			while (processor.downstreamCount() != 0) {
+				Thread.sleep(10);
+			}
+			StepVerifier.create(TopicProcessor.replayBacklog(file, UTF8))
+			            .verifyComplete();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeout = 15000L)
+	public void terminationClosesMappedBacklog() throws Exception {
+		Path file = Files.createTempFile("topic", ".backlog");
+		try {
+			TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(8)
+			                                                                   .mappedBacklog(file, UTF8, 8)
+			                                                                   .build();
+			processor.onNext("a");
+			processor.onNext("b");
+
+			MappedRingBuffer<String> backlog = (MappedRingBuffer<String>) processor.ringBuffer;
+			assertThat(backlog.channel.isOpen()).isTrue();
+			processor.onComplete();
+			assertThat(backlog.channel.isOpen()).isFalse();
+
+			//the released backlog stays readable for late subscribers
+			StepVerifier.create(processor)
+			            .expectNext("a", "b")
+			            .verifyComplete();
+			StepVerifier.create(TopicProcessor.replayBacklog(file, UTF8))
+			            .expectNext("a", "b")
+			            .verifyComplete();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(timeout = 15000L)
+	public void mappedBacklogIsClosedOnceSubscribersStopped() throws Exception {
+		Path file = Files.createTempFile("topic", ".backlog");
+		try {
+			TopicProcessor<String> processor = TopicProcessor.<String>builder().bufferSize(8)
+			                                                                   .mappedBacklog(file, UTF8, 8)
+			                                                                   .build();
+			processor.subscribe(v -> { });
+			processor.onNext("a");
+			while (processor.getPending() != 0) {
+				Thread.sleep(10);
+			}
+
+			MappedRingBuffer<String> backlog = (MappedRingBuffer<String>) processor.ringBuffer;
+			processor.shutdown();
+			//released by the subscriber thread once it stopped
+			while (backlog.channel.isOpen()) {
+				Thread.sleep(10);
+			}
+			assertThat(processor.downstreamCount()).isZero();
+
+			StepVerifier.create(TopicProcessor.replayBacklog(file, UTF8))
+			            .verifyComplete();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void mappedBacklogRejectsNonPositiveMaxSerializedSize() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> TopicProcessor.<String>builder()
+		                                          .mappedBacklog(Paths.get("unused"), UTF8, 0));
+	}
+
 	@Test
 	@Ignore
 	public void chainedTopicProcessor() throws Exception {
@@ -262,9 +1354,21 @@ public class TopicProcessorTest {
 				          customTaskExecutor,
 				          8,
 				          WaitStrategy.liteBlocking(),
+				          WaitStrategy.parking(0),
 				          true,
+				          false,
 				          true,
-				          Object::new));
+				          Object::new,
+				          null,
+				          0,
+				          0,
+				          0,
+				          null,
+				          null,
+				          0L,
+				          null,
+				          0,
+				          null));
 	}
 
 	@Test
@@ -16,17 +16,25 @@
 
 package reactor.extra.processor;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -92,6 +100,41 @@ public class WorkQueueProcessorTest {
 		}
 	}
 
+	@Test(timeout = 15000L)
+	public void boundedSubscriberWithoutDemandWaitsOnWaitStrategy() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().waitStrategy(WaitStrategy.liteBlocking())
+		                                                                             .build();
+		AtomicReference<Thread> consumer = new AtomicReference<>();
+		BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+		BaseSubscriber<Integer> subscriber = new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				consumer.set(Thread.currentThread());
+				received.add(value);
+			}
+		};
+		processor.subscribe(subscriber);
+
+		processor.onNext(1);
+		processor.onNext(2);
+		Assertions.assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(1);
+
+		//the subscriber thread parks on the wait strategy instead of spinning
+		while (consumer.get().getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		Assertions.assertThat(received).isEmpty();
+
+		subscriber.request(1);
+		Assertions.assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(2);
+		processor.shutdown();
+	}
+
 	@Test(timeout = 15000L)
 	public void cancelDoesNotHang() throws Exception {
 		WorkQueueProcessor<String> wq = WorkQueueProcessor.create();
@@ -129,6 +172,198 @@ public class WorkQueueProcessorTest {
 		}
 	}
 
+	@Test(timeout = 15000L)
+	public void claimBatchSizeDeliversEachSignalOnce() throws Exception {
+		WorkQueueProcessor<Integer> wq = WorkQueueProcessor.<Integer>builder().bufferSize(64)
+		                                                                      .claimBatchSize(8)
+		                                                                      .build();
+		int elems = 10_000;
+		Queue<Integer> received = new ConcurrentLinkedQueue<>();
+		CountDownLatch latch = new CountDownLatch(4);
+
+		for (int i = 0; i < 4; i++) {
+			wq.doFinally(s -> latch.countDown())
+			  .subscribe(received::add);
+		}
+
+		Flux.range(0, elems)
+		    .subscribe(wq);
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assertions.assertThat(received)
+		          .hasSize(elems)
+		          .doesNotHaveDuplicates();
+	}
+
+	@Test(timeout = 15000L)
+	public void claimBatchSizeReplaysPartiallyConsumedClaim() throws Exception {
+		WorkQueueProcessor<Integer> wq = WorkQueueProcessor.<Integer>builder().bufferSize(16)
+		                                                                      .claimBatchSize(8)
+		                                                                      .autoCancel(false)
+		                                                                      .build();
+		for (int i = 0; i < 16; i++) {
+			wq.onNext(i);
+		}
+
+		Queue<Integer> first = new ConcurrentLinkedQueue<>();
+		CountDownLatch cancelled = new CountDownLatch(1);
+		wq.subscribe(new BaseSubscriber<Integer>() {
+			@Override
+			protected void hookOnNext(Integer value) {
+				first.add(value);
+				if (first.size() == 3) {
+					cancel();
+					cancelled.countDown();
+				}
+			}
+		});
+		assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+
+		Queue<Integer> second = new ConcurrentLinkedQueue<>();
+		CountDownLatch done = new CountDownLatch(1);
+		wq.doFinally(s -> done.countDown())
+		  .subscribe(second::add);
+		wq.onComplete();
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assertions.assertThat(first)
+		          .containsExactly(0, 1, 2);
+		Assertions.assertThat(second)
+		          .containsExactlyInAnyOrder(3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+	}
+
+	@Test
+	public void claimBatchSizeRejectsNonPositive() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> WorkQueueProcessor.builder().claimBatchSize(0));
+	}
+
+	@Test
+	public void affinityRejectsVirtualThreads() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> WorkQueueProcessor.builder()
+		                                              .affinity(AffinityProvider.noop(), 0)
+		                                              .virtualThreads(true)
+		                                              .build());
+	}
+
+	@Test(timeout = 15000L)
+	public void sharedProducersBackOffOnFullBuffer() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().share(true)
+		                                                                             .bufferSize(8)
+		                                                                             .producerWaitStrategy(WaitStrategy.parkingBackoff(1, TimeUnit.MILLISECONDS))
+		                                                                             .build();
+		Queue<Integer> received = new ConcurrentLinkedQueue<>();
+		CountDownLatch latch = new CountDownLatch(1000);
+		for (int i = 0; i < 2; i++) {
+			processor.subscribe(v -> {
+				received.add(v);
+				latch.countDown();
+			});
+		}
+
+		ExecutorService producers = Executors.newFixedThreadPool(4);
+		for (int p = 0; p < 4; p++) {
+			int offset = p * 250;
+			producers.execute(() -> {
+				for (int i = 0; i < 250; i++) {
+					processor.onNext(offset + i);
+				}
+			});
+		}
+
+		Assertions.assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(received).hasSize(1000)
+		                    .doesNotHaveDuplicates();
+		producers.shutdown();
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void stripedClaimsDeliverEverySignalOnce() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().share(true)
+		                                                                             .stripedClaims(true)
+		                                                                             .bufferSize(16)
+		                                                                             .build();
+		Queue<Integer> received = new ConcurrentLinkedQueue<>();
+		CountDownLatch latch = new CountDownLatch(8000);
+		for (int i = 0; i < 2; i++) {
+			processor.subscribe(v -> {
+				received.add(v);
+				latch.countDown();
+			});
+		}
+
+		ExecutorService producers = Executors.newFixedThreadPool(8);
+		for (int p = 0; p < 8; p++) {
+			int offset = p * 1000;
+			producers.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					processor.onNext(offset + i);
+				}
+			});
+		}
+
+		Assertions.assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(received).hasSize(8000)
+		                    .doesNotHaveDuplicates();
+		Assertions.assertThat(processor.getPending()).isLessThanOrEqualTo(16);
+		producers.shutdown();
+		processor.shutdown();
+	}
+
+	@Test
+	public void sharedOfferAllClaimsOnceAndDoesNotBlock() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().share(true)
+		                                                                             .bufferSize(8)
+		                                                                             .build();
+		assertTrue(processor.offerAll(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7)));
+		assertFalse(processor.offer(8));
+
+		BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+		processor.subscribe(received::add);
+		for (int i = 0; i < 8; i++) {
+			Assertions.assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(i);
+		}
+
+		while (!processor.offer(8)) {
+			Thread.sleep(10);
+		}
+		Assertions.assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(8);
+		processor.shutdown();
+	}
+
+	@Test(timeout = 15000L)
+	public void sharedMappedBacklogDeliversAndReplaysSignals() throws Exception {
+		Path file = Files.createTempFile("workqueue", ".backlog");
+		try {
+			WorkQueueProcessor<String> processor = WorkQueueProcessor.<String>builder().share(true)
+			                                                                           .bufferSize(8)
+			                                                                           .mappedBacklog(file, TopicProcessorTest.UTF8, 16)
+			                                                                           .build();
+			assertTrue(processor.offerAll(Arrays.asList("a", "b", "c")));
+			processor.onNext("d");
+			processor.onComplete();
+
+			StepVerifier.create(processor)
+			            .expectNext("a", "b", "c", "d")
+			            .verifyComplete();
+
+			StepVerifier.create(WorkQueueProcessor.replayBacklog(file, TopicProcessorTest.UTF8))
+			            .expectNext("a", "b", "c", "d")
+			            .verifyComplete();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void parkingBackoffRejectsNonPositiveMaxParkTime() {
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> WaitStrategy.parkingBackoff(0, TimeUnit.MILLISECONDS));
+	}
+
 	@Test(timeout = 15000L)
 	public void completeDoesNotHang() throws Exception {
 		WorkQueueProcessor<String> wq = WorkQueueProcessor.create();
@@ -294,6 +529,25 @@ public class WorkQueueProcessorTest {
 		assertProcessor(processor, false, name, bufferSize, waitStrategy, null, null, null);
 	}
 
+	@Test(timeout = 15000L)
+	public void requestRateBatchesUpstreamRequests() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().bufferSize(8)
+		                                                                             .requestRate(4, 4)
+		                                                                             .build();
+		Queue<Long> requests = new ConcurrentLinkedQueue<>();
+		AtomicInteger received = new AtomicInteger();
+		CountDownLatch completed = new CountDownLatch(1);
+		processor.subscribe(v -> received.incrementAndGet(), null, completed::countDown);
+		Flux.range(0, 1000)
+		    .doOnRequest(requests::add)
+		    .subscribe(processor);
+
+		Assertions.assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(received.get()).isEqualTo(1000);
+		Assertions.assertThat(requests.poll()).isEqualTo(4L);
+		Assertions.assertThat(requests).allMatch(r -> r >= 4L);
+	}
+
 	@Test
 	public void customRequestTaskThreadRejectsNull() {
 		ExecutorService customTaskExecutor = null;
@@ -304,8 +558,20 @@ public class WorkQueueProcessorTest {
 				          customTaskExecutor,
 				          8,
 				          WaitStrategy.liteBlocking(),
+				          WaitStrategy.parking(0),
 				          true,
-				          true));
+				          false,
+				          true,
+				          1,
+				          null,
+				          0,
+				          0,
+				          null,
+				          null,
+				          0,
+				          0,
+				          0,
+				          false));
 	}
 
 	@Test(timeout = 15000L)
@@ -1423,6 +1689,236 @@ public class WorkQueueProcessorTest {
 
 	}
 
+	@Test
+	public void targetedWaitStrategyOnlyWakesSatisfiedWaiters() throws Exception {
+		WaitStrategy.Targeted strategy = (WaitStrategy.Targeted) WaitStrategy.targeted(1, TimeUnit.MINUTES);
+		AtomicLong cursor = new AtomicLong(-1L);
+		AtomicInteger alerted = new AtomicInteger();
+		AtomicLong firstWoken = new AtomicLong(-1L);
+		CountDownLatch secondDone = new CountDownLatch(1);
+		AtomicReference<Throwable> secondError = new AtomicReference<>();
+		Thread first = new Thread(() -> {
+			try {
+				firstWoken.set(strategy.waitFor(0L, cursor::get, () -> {}));
+			}
+			catch (InterruptedException ignored) {
+			}
+		});
+		Thread second = new Thread(() -> {
+			try {
+				strategy.waitFor(10L, cursor::get, () -> {
+					if (alerted.get() > 0) {
+						WaitStrategy.alert();
+					}
+				});
+			}
+			catch (Throwable t) {
+				secondError.set(t);
+			}
+			secondDone.countDown();
+		});
+		first.start();
+		second.start();
+		while (strategy.waiters() != 2) {
+			Thread.sleep(10);
+		}
+
+		cursor.set(0L);
+		strategy.signalAllWhenBlocking();
+		first.join(5000);
+		Assertions.assertThat(firstWoken.get()).isZero();
+		Assertions.assertThat(strategy.waiters()).isEqualTo(1);
+
+		alerted.incrementAndGet();
+		strategy.wakeAll();
+		Assertions.assertThat(secondDone.await(5, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(WaitStrategy.isAlert(secondError.get())).isTrue();
+		Assertions.assertThat(strategy.waiters()).isZero();
+	}
+
+	@Test
+	public void targetedWaitStrategyDeliversToAllWorkers() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().waitStrategy(WaitStrategy.targeted())
+		                                                                             .bufferSize(16)
+		                                                                             .build();
+		CountDownLatch received = new CountDownLatch(1000);
+		for (int i = 0; i < 4; i++) {
+			processor.subscribe(v -> received.countDown());
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			processor.onNext(i);
+		}
+
+		Assertions.assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+		processor.onComplete();
+		Assertions.assertThat(processor.awaitAndShutdown(Duration.ofSeconds(5))).isTrue();
+	}
+
+	@Test
+	public void priorityLanesAreServedFirst() {
+		WorkQueueProcessor<String> processor = WorkQueueProcessor.<String>builder().bufferSize(16)
+		                                                                           .priorityLanes(2, 8, 100)
+		                                                                           .build();
+		processor.onNext("m0");
+		processor.onNext("m1");
+		processor.onNext("p1", 1);
+		processor.onNext("p2", 2);
+
+		StepVerifier.create(processor)
+		            .expectNext("p2", "p1", "m0", "m1")
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void priorityLanesDoNotStarveRingBuffer() {
+		WorkQueueProcessor<String> processor = WorkQueueProcessor.<String>builder().bufferSize(16)
+		                                                                           .priorityLanes(1, 8, 2)
+		                                                                           .build();
+		for (int i = 0; i < 3; i++) {
+			processor.onNext("m" + i);
+		}
+		for (int i = 0; i < 6; i++) {
+			processor.onNext("p" + i, 1);
+		}
+
+		StepVerifier.create(processor)
+		            .expectNext("p0", "p1", "m0", "p2", "p3", "m1", "p4", "p5", "m2")
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void priorityLanesWaitForDemand() {
+		WorkQueueProcessor<String> processor = WorkQueueProcessor.<String>builder().priorityLanes(1, 8, 2)
+		                                                                           .build();
+
+		StepVerifier.create(processor, 0)
+		            .then(() -> processor.onNext("p0", 1))
+		            .expectNoEvent(Duration.ofMillis(100))
+		            .thenRequest(1)
+		            .expectNext("p0")
+		            .then(processor::onComplete)
+		            .verifyComplete();
+	}
+
+	@Test
+	public void priorityRejectsMissingLane() {
+		WorkQueueProcessor<String> processor = WorkQueueProcessor.<String>builder().priorityLanes(1, 8, 2)
+		                                                                           .build();
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> processor.onNext("p", 2));
+		processor.shutdown();
+	}
+
+	@Test
+	public void idleSubscriberStealsClaimedSignals() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().bufferSize(64)
+		                                                                             .claimBatchSize(8)
+		                                                                             .workStealing(true)
+		                                                                             .build();
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch completed = new CountDownLatch(2);
+		Queue<Integer> slow = new ConcurrentLinkedQueue<>();
+		Queue<Integer> fast = new ConcurrentLinkedQueue<>();
+
+		for (int i = 0; i < 16; i++) {
+			processor.onNext(i);
+		}
+		//claims 1 to 8 after 0 and blocks on 1
+		processor.subscribe(i -> {
+			slow.add(i);
+			if (i == 1) {
+				blocked.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, e -> {}, completed::countDown);
+		Assertions.assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+		processor.subscribe(fast::add, e -> {}, completed::countDown);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (fast.size() < 14 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		Assertions.assertThat(fast).containsExactlyInAnyOrder(2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15);
+
+		release.countDown();
+		processor.onComplete();
+		Assertions.assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(slow).containsExactly(0, 1);
+	}
+
+	@Test
+	public void batchedEmitsFullBatches() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().bufferSize(128)
+		                                                                             .build();
+		Queue<List<Integer>> batches = new ConcurrentLinkedQueue<>();
+		CountDownLatch completed = new CountDownLatch(1);
+		processor.batched(10, Duration.ofSeconds(10))
+		         .subscribe(batches::add, e -> {}, completed::countDown);
+		while (processor.downstreamCount() != 1) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			processor.onNext(i);
+		}
+		processor.onComplete();
+
+		Assertions.assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+		Assertions.assertThat(batches).allMatch(batch -> batch.size() <= 10);
+		Assertions.assertThat(batches.stream()
+		                             .mapToInt(List::size)
+		                             .sum()).isEqualTo(100);
+		Assertions.assertThat(batches.stream()
+		                             .filter(batch -> batch.size() == 10)
+		                             .count()).isGreaterThanOrEqualTo(9L);
+	}
+
+	@Test
+	public void batchedEmitsPartialBatchAfterMaxTime() throws Exception {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().build();
+		Queue<List<Integer>> batches = new ConcurrentLinkedQueue<>();
+		AtomicInteger received = new AtomicInteger();
+		processor.batched(100, Duration.ofMillis(50))
+		         .subscribe(batch -> {
+			         batches.add(batch);
+			         received.addAndGet(batch.size());
+		         });
+		while (processor.downstreamCount() != 1) {
+			Thread.sleep(10);
+		}
+
+		for (int i = 0; i < 5; i++) {
+			processor.onNext(i);
+		}
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (received.get() < 5 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assertions.assertThat(received.get()).isEqualTo(5);
+		Assertions.assertThat(batches).allMatch(batch -> batch.size() < 100);
+		processor.shutdown();
+	}
+
+	@Test
+	public void batchedRejectsInvalidBounds() {
+		WorkQueueProcessor<Integer> processor = WorkQueueProcessor.<Integer>builder().build();
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> processor.batched(0, Duration.ofMillis(1)));
+		Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+		          .isThrownBy(() -> processor.batched(1, Duration.ofMillis(-1)));
+		processor.shutdown();
+	}
+
 	private void assertProcessor(WorkQueueProcessor<Integer> processor,
 			boolean shared,
 			@Nullable String name,